@@ -0,0 +1,78 @@
+package com.icourt.loading.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description AlphaLoading生命周期的状态转换, 每次操作是一轮完整的显示到结束
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoadingStateMachineBenchmark {
+
+    private final LoadingStateMachine mStates = new LoadingStateMachine();
+
+    /**
+     * show -> dismissImmediately -> onDismiss
+     */
+    @Benchmark
+    public int showDismiss() {
+        LoadingStateMachine states = mStates;
+        states.show();
+        states.dismiss();
+        states.release();
+        return states.getState();
+    }
+
+    /**
+     * show -> dismissWithResult -> 结果显示结束 -> onDismiss
+     */
+    @Benchmark
+    public int showResult() {
+        LoadingStateMachine states = mStates;
+        states.show();
+        states.startResult();
+        states.finishResult();
+        states.release();
+        return states.getState();
+    }
+
+    /**
+     * dismiss期间再次show, dismiss完成后重新显示
+     */
+    @Benchmark
+    public int reshowWhileDismissing() {
+        LoadingStateMachine states = mStates;
+        states.show();
+        states.dismiss();
+        states.show();
+        states.release();
+        if (states.consumeReshow()) {
+            states.show();
+        }
+        states.dismissLossState();
+        states.release();
+        return states.getState();
+    }
+
+    /**
+     * 页面重复调用show/isShowing, 状态不变
+     */
+    @Benchmark
+    public boolean repeatedShow() {
+        LoadingStateMachine states = mStates;
+        states.show();
+        return states.isShowing();
+    }
+}
@@ -0,0 +1,18 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 基准测试用的时钟, 由测试代码推进
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+final class ManualClock implements Clock {
+
+    long now;
+
+    @Override
+    public long uptimeMillis() {
+        return now;
+    }
+}
@@ -0,0 +1,79 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 每帧/每次推送执行的调度计算: 帧动画取帧, 状态合并, 重试退避
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulingBenchmark {
+
+    private FrameTimeline mTimeline;
+    private FrameTimeline mReducedTimeline;
+    private final StateCoalescer mCoalescer = new StateCoalescer();
+    private final StateCoalescer.Update mUpdate = new StateCoalescer.Update();
+    private final RetryBackoff mBackoff = new RetryBackoff(new Random(42));
+    private long mFrameTime;
+    private int mFailures;
+
+    @Setup
+    public void setUp() {
+        // 与默认loading动画相同: 45帧, 每帧42ms
+        int[] durations = new int[45];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = 42;
+        }
+        mTimeline = new FrameTimeline(durations);
+        mReducedTimeline = new FrameTimeline(durations);
+        mReducedTimeline.setFrameInterval(1000 / 12);
+    }
+
+    @Benchmark
+    public int frameAt() {
+        mFrameTime += 16;
+        return mTimeline.frameAt(mFrameTime);
+    }
+
+    @Benchmark
+    public long frameAtReducedRate() {
+        mFrameTime += 16;
+        return mReducedTimeline.frameAt(mFrameTime) + mReducedTimeline.delayToNextFrame(mFrameTime);
+    }
+
+    /**
+     * 一帧内多次推送, 只应用最后一次
+     */
+    @Benchmark
+    public ViewState coalesceBurst() {
+        StateCoalescer coalescer = mCoalescer;
+        coalescer.offer(ViewState.VIEW_STATE_LOADING, null, null);
+        coalescer.offer(ViewState.VIEW_STATE_CONTENT, null, null);
+        coalescer.offer(ViewState.VIEW_STATE_LOADING, null, null);
+        coalescer.offer(ViewState.VIEW_STATE_CONTENT, null, null);
+        coalescer.poll(mUpdate);
+        return mUpdate.state;
+    }
+
+    @Benchmark
+    public long backoff() {
+        mFailures = mFailures % 10 + 1;
+        return mBackoff.delayFor(mFailures);
+    }
+}
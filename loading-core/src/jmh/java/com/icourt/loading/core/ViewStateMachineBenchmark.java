@@ -0,0 +1,113 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description AlphaStateLayout.setViewState背后的状态选择; 回调只记录结果, 不包含view的切换
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewStateMachineBenchmark {
+
+    private static final int NO_STATE = ViewStateMachine.NO_STATE;
+
+    private final ManualClock mClock = new ManualClock();
+    private ViewStateMachine mImmediate;
+    private ViewStateMachine mDelayed;
+    /**
+     * 回调的结果, 由基准方法返回, 避免被JIT消除
+     */
+    private long mScheduledDelay;
+    private ViewState mApplied;
+
+    private final ViewStateMachine.Callback mCallback = new ViewStateMachine.Callback() {
+        @Override
+        public void schedule(long delayMillis) {
+            mScheduledDelay = delayMillis;
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void onStateApplied(ViewState previous, ViewState current, int customState, long dwellMillis) {
+            mApplied = current;
+        }
+
+        @Override
+        public void onStateUnchanged(ViewState state, int customState) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        mImmediate = new ViewStateMachine(ViewState.VIEW_STATE_CONTENT, mClock, mCallback);
+        mDelayed = new ViewStateMachine(ViewState.VIEW_STATE_CONTENT, mClock, mCallback);
+        mDelayed.setLoadingShowDelay(300);
+        mDelayed.setLoadingMinShowTime(500);
+    }
+
+    /**
+     * 没有延迟配置, loading/content来回切换
+     */
+    @Benchmark
+    public ViewState loadingContent() {
+        mClock.now += 16;
+        mImmediate.request(ViewState.VIEW_STATE_LOADING, NO_STATE);
+        mImmediate.request(ViewState.VIEW_STATE_CONTENT, NO_STATE);
+        return mApplied;
+    }
+
+    /**
+     * 重复设置相同状态
+     */
+    @Benchmark
+    public ViewState sameState() {
+        mImmediate.request(ViewState.VIEW_STATE_CONTENT, NO_STATE);
+        return mImmediate.getRequestedState();
+    }
+
+    /**
+     * loading延迟时间内返回结果, loading不显示
+     */
+    @Benchmark
+    public long fastLoadCoalesced() {
+        mClock.now += 16;
+        mDelayed.request(ViewState.VIEW_STATE_LOADING, NO_STATE);
+        mDelayed.request(ViewState.VIEW_STATE_CONTENT, NO_STATE);
+        return mScheduledDelay + mDelayed.getRequestedState().ordinal();
+    }
+
+    /**
+     * loading延迟后显示, 最短显示时间内返回结果, 到时间后提交
+     */
+    @Benchmark
+    public ViewState slowLoadWithMinShow() {
+        ManualClock clock = mClock;
+        clock.now += 16;
+        mDelayed.request(ViewState.VIEW_STATE_LOADING, NO_STATE);
+        clock.now += 300;
+        mDelayed.commitPending();
+        clock.now += 100;
+        mDelayed.request(ViewState.VIEW_STATE_ERROR, NO_STATE);
+        clock.now += 400;
+        mDelayed.commitPending();
+        return mApplied;
+    }
+}
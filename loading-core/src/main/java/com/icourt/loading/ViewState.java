@@ -12,5 +12,7 @@ public enum ViewState {
     VIEW_STATE_CONTENT,//内容
     VIEW_STATE_ERROR, //错误
     VIEW_STATE_EMPTY,//内容为空
-    VIEW_STATE_LOADING //加载中..
+    VIEW_STATE_LOADING, //加载中..
+    VIEW_STATE_SKELETON, //骨架屏
+    VIEW_STATE_CUSTOM //自定义状态, 见AlphaStateLayout#setCustomState
 }
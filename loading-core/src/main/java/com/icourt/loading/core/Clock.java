@@ -0,0 +1,13 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 单调时钟(ms), android上使用SystemClock.uptimeMillis, 测试时可以手动推进
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public interface Clock {
+
+    long uptimeMillis();
+}
@@ -0,0 +1,96 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 由{@link FrameDispatcher}驱动的循环帧动画: 按{@link FrameTimeline}取帧, 只在换帧时通知宿主
+ * <p>
+ * 不持有drawable, 换帧由{@link Callback#onFrameChanged(int)}交给宿主; 回调返回到下一次换帧的时间,
+ * 停止后返回{@link FrameDispatcher#NO_FRAME}; 每帧不分配对象;
+ * 非线程安全, 只在一个线程(主线程)使用
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public final class FrameAnimator implements FrameDispatcher.Listener {
+
+    public interface Callback {
+        /**
+         * 需要显示的帧变化
+         *
+         * @param frame
+         */
+        void onFrameChanged(int frame);
+    }
+
+    private final FrameTimeline mTimeline;
+    private final Callback mCallback;
+    private boolean mRunning;
+    private int mCurrentFrame;
+
+    /**
+     * @param durations 每一帧的时长(ms), 初始显示第0帧
+     * @param callback
+     */
+    public FrameAnimator(int[] durations, Callback callback) {
+        if (callback == null) {
+            throw new NullPointerException();
+        }
+        mTimeline = new FrameTimeline(durations);
+        mCallback = callback;
+    }
+
+    /**
+     * @return 是否从停止变为播放
+     */
+    public boolean start() {
+        if (mRunning) {
+            return false;
+        }
+        mRunning = true;
+        return true;
+    }
+
+    /**
+     * @return 是否从播放变为停止
+     */
+    public boolean stop() {
+        if (!mRunning) {
+            return false;
+        }
+        mRunning = false;
+        return true;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public int getCurrentFrame() {
+        return mCurrentFrame;
+    }
+
+    /**
+     * 见{@link FrameTimeline#setFrameInterval(long)}
+     *
+     * @param intervalMillis 小于等于0表示原始帧率
+     * @return 步长是否变化, 播放中变化时宿主需要重新安排下一次回调
+     */
+    public boolean setFrameInterval(long intervalMillis) {
+        return mTimeline.setFrameInterval(intervalMillis);
+    }
+
+    @Override
+    public long onTick(long frameTimeMillis) {
+        if (!mRunning) {
+            // 同一帧内已经被stop
+            return FrameDispatcher.NO_FRAME;
+        }
+        // 以绝对时间取模, 不同时间开始的实例也显示同一帧
+        int frame = mTimeline.frameAt(frameTimeMillis);
+        if (frame != mCurrentFrame) {
+            mCurrentFrame = frame;
+            mCallback.onFrameChanged(frame);
+        }
+        return mTimeline.delayToNextFrame(frameTimeMillis);
+    }
+}
@@ -0,0 +1,97 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 把一个帧回调分发给所有正在播放的动画
+ * <p>
+ * 只在增删时复制数组, 分发时不分配对象; 回调中增删监听者从下一帧开始生效;
+ * 每个监听者返回到下一次换帧的时间, 宿主按其中最早的一个安排下一次回调, 不需要每个vsync都回调;
+ * 非线程安全, 只在一个线程(主线程)使用
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+public final class FrameDispatcher {
+
+    /**
+     * 不需要再回调
+     */
+    public static final long NO_FRAME = -1;
+
+    public interface Listener {
+        /**
+         * @param frameTimeMillis 本帧的时间
+         * @return 从frameTimeMillis到下一次需要回调的时间(ms), 0表示下一帧, {@link #NO_FRAME}表示不再需要
+         */
+        long onTick(long frameTimeMillis);
+    }
+
+    private static final Listener[] NO_LISTENERS = new Listener[0];
+
+    private Listener[] mListeners = NO_LISTENERS;
+
+    /**
+     * @param listener
+     * @return false 已经添加过
+     */
+    public boolean add(Listener listener) {
+        Listener[] listeners = mListeners;
+        for (Listener l : listeners) {
+            if (l == listener) {
+                return false;
+            }
+        }
+        Listener[] newListeners = new Listener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        mListeners = newListeners;
+        return true;
+    }
+
+    public boolean remove(Listener listener) {
+        Listener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    mListeners = NO_LISTENERS;
+                } else {
+                    Listener[] newListeners = new Listener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    mListeners = newListeners;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return mListeners.length == 0;
+    }
+
+    /**
+     * 分发一帧
+     *
+     * @param frameTimeMillis
+     * @return 从frameTimeMillis到下一次需要回调的最短时间(ms), 没有监听者需要时返回{@link #NO_FRAME}
+     */
+    public long dispatch(long frameTimeMillis) {
+        Listener[] listeners = mListeners;
+        long next = NO_FRAME;
+        for (int i = 0; i < listeners.length; i++) {
+            long delay = listeners[i].onTick(frameTimeMillis);
+            if (delay >= 0 && (next == NO_FRAME || delay < next)) {
+                next = delay;
+            }
+        }
+        if (mListeners.length == 0) {
+            return NO_FRAME;
+        }
+        if (mListeners != listeners) {
+            // 回调中新增的监听者还没有收到过回调, 下一帧就需要
+            return 0;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,103 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 循环帧动画的时间轴: 按绝对时间取模计算当前帧, 不同时间开始的动画显示同一帧
+ * <p>
+ * 降低帧率时按固定步长跳帧, 见{@link #setFrameInterval(long)}; 计算当前帧不分配对象
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public final class FrameTimeline {
+
+    private final int mFrameCount;
+    /**
+     * 每一帧结束的时间点, 相对于一轮动画的开始
+     */
+    private final long[] mFrameEnds;
+    private final long mCycleDuration;
+    /**
+     * 每次前进的帧数, 1为原始帧率
+     */
+    private int mFrameStride = 1;
+
+    /**
+     * @param durations 每一帧的时长(ms), 小于1的按1计算
+     */
+    public FrameTimeline(int[] durations) {
+        if (durations.length == 0) {
+            throw new IllegalArgumentException("durations is empty");
+        }
+        mFrameCount = durations.length;
+        mFrameEnds = new long[mFrameCount];
+        long end = 0;
+        for (int i = 0; i < mFrameCount; i++) {
+            end += Math.max(1, durations[i]);
+            mFrameEnds[i] = end;
+        }
+        mCycleDuration = end;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getCycleDuration() {
+        return mCycleDuration;
+    }
+
+    public int getFrameStride() {
+        return mFrameStride;
+    }
+
+    /**
+     * 设置两帧之间的最短间隔, 换算成均匀的跳帧步长
+     *
+     * @param intervalMillis 小于等于0表示原始帧率
+     * @return 步长是否变化, 变化后{@link #delayToNextFrame(long)}也随之变化, 已经安排的回调需要重新安排
+     */
+    public boolean setFrameInterval(long intervalMillis) {
+        int stride = 1;
+        if (intervalMillis > 0) {
+            long averageFrame = Math.max(1, mCycleDuration / mFrameCount);
+            stride = (int) Math.max(1, Math.min(mFrameCount, Math.round((double) intervalMillis / averageFrame)));
+        }
+        if (stride == mFrameStride) {
+            return false;
+        }
+        mFrameStride = stride;
+        return true;
+    }
+
+    /**
+     * timeMillis时应该显示的帧
+     *
+     * @param timeMillis 绝对时间
+     * @return
+     */
+    public int frameAt(long timeMillis) {
+        long offset = timeMillis % mCycleDuration;
+        int frame = 0;
+        while (frame < mFrameCount - 1 && offset >= mFrameEnds[frame]) {
+            frame++;
+        }
+        if (mFrameStride > 1) {
+            frame -= frame % mFrameStride;
+        }
+        return frame;
+    }
+
+    /**
+     * 从timeMillis到下一次换帧的时间
+     *
+     * @param timeMillis 绝对时间
+     * @return 至少1ms
+     */
+    public long delayToNextFrame(long timeMillis) {
+        long offset = timeMillis % mCycleDuration;
+        int next = Math.min(mFrameCount, frameAt(timeMillis) + mFrameStride);
+        long nextAt = next >= mFrameCount ? mCycleDuration : mFrameEnds[next - 1];
+        return Math.max(1, nextAt - offset);
+    }
+}
@@ -0,0 +1,113 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description AlphaLoading的生命周期: FREE -> LOADING -> (RESULTING) -> DISMISSING -> FREE
+ * <p>
+ * 只负责状态转换, 返回值告诉宿主是否需要执行对应的UI操作;
+ * DISMISSING期间调用{@link #show()}会记下, dismiss完成后由{@link #consumeReshow()}取出重新显示;
+ * 非线程安全, 只在主线程使用
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public final class LoadingStateMachine {
+
+    public static final int STATE_FREE = 0;
+    public static final int STATE_LOADING = 1;
+    public static final int STATE_RESULTING = 2;
+    public static final int STATE_DISMISSING = 3;
+
+    private int mState = STATE_FREE;
+    private boolean mReshowPending;
+
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * loading或者结果正在显示
+     *
+     * @return
+     */
+    public boolean isShowing() {
+        return mState == STATE_LOADING || mState == STATE_RESULTING;
+    }
+
+    /**
+     * @return true 需要显示loading; 正在dismiss时返回false, dismiss完成后再显示
+     */
+    public boolean show() {
+        if (mState == STATE_FREE) {
+            mState = STATE_LOADING;
+            return true;
+        }
+        if (mState == STATE_DISMISSING) {
+            mReshowPending = true;
+        }
+        return false;
+    }
+
+    /**
+     * 直接结束loading
+     *
+     * @return true 需要dismiss
+     */
+    public boolean dismiss() {
+        if (mState == STATE_LOADING) {
+            mState = STATE_DISMISSING;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 结束loading并显示结果
+     *
+     * @return true 需要切换到结果
+     */
+    public boolean startResult() {
+        if (mState == STATE_LOADING) {
+            mState = STATE_RESULTING;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 结果显示时间到了, 开始dismiss
+     */
+    public void finishResult() {
+        mState = STATE_DISMISSING;
+    }
+
+    /**
+     * 宿主销毁时结束, 不再重新显示
+     *
+     * @return true 需要dismiss
+     */
+    public boolean dismissLossState() {
+        if (isShowing()) {
+            mReshowPending = false;
+            mState = STATE_DISMISSING;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * dismiss或者cancel完成, 回到FREE
+     */
+    public void release() {
+        mState = STATE_FREE;
+    }
+
+    /**
+     * @return true dismiss期间调用过show, 需要重新显示
+     */
+    public boolean consumeReshow() {
+        boolean reshow = mReshowPending;
+        mReshowPending = false;
+        return reshow;
+    }
+}
@@ -0,0 +1,65 @@
+package com.icourt.loading.core;
+
+import java.util.Random;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 指数退避 + 随机抖动: 第n次失败后等待 min(base * multiplier^(n-1), max) * (1 - jitter * random)
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public final class RetryBackoff {
+
+    public static final long DEFAULT_BASE_DELAY = 1000L;
+    public static final long DEFAULT_MAX_DELAY = 30 * 1000L;
+
+    private final Random mRandom;
+
+    private long mBaseDelay = DEFAULT_BASE_DELAY;
+    private long mMaxDelay = DEFAULT_MAX_DELAY;
+    private float mMultiplier = 2f;
+    private float mJitter = 0.5f;
+
+    public RetryBackoff() {
+        this(new Random());
+    }
+
+    /**
+     * @param random 抖动使用的随机数, 测试时可以固定种子
+     */
+    public RetryBackoff(Random random) {
+        mRandom = random;
+    }
+
+    public void setBaseDelay(long baseDelayMillis) {
+        mBaseDelay = Math.max(0, baseDelayMillis);
+    }
+
+    public void setMaxDelay(long maxDelayMillis) {
+        mMaxDelay = Math.max(0, maxDelayMillis);
+    }
+
+    public void setMultiplier(float multiplier) {
+        mMultiplier = Math.max(1f, multiplier);
+    }
+
+    /**
+     * @param jitter 抖动比例[0,1]
+     */
+    public void setJitter(float jitter) {
+        mJitter = Math.max(0f, Math.min(1f, jitter));
+    }
+
+    /**
+     * 第failures次连续失败后的等待时间
+     *
+     * @param failures 从1开始
+     * @return
+     */
+    public long delayFor(int failures) {
+        double delay = mBaseDelay * Math.pow(mMultiplier, Math.max(0, failures - 1));
+        delay = Math.min(delay, mMaxDelay);
+        return (long) (delay * (1f - mJitter * mRandom.nextFloat()));
+    }
+}
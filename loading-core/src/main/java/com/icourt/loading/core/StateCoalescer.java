@@ -0,0 +1,92 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 合并任意线程推送的状态, 只保留最新的值
+ * <p>
+ * {@link #offer}返回true时宿主需要安排一次{@link #poll}, 在poll之前的推送只会覆盖值, 不会重复安排;
+ * 提示文案为null时保持上一次推送的值
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public final class StateCoalescer {
+
+    /**
+     * poll取出的值, 由调用者复用
+     */
+    public static final class Update {
+        public ViewState state;
+        public CharSequence errorText;
+        public CharSequence emptyText;
+    }
+
+    private final Object mLock = new Object();
+    private ViewState mPendingState;
+    private CharSequence mPendingErrorText;
+    private CharSequence mPendingEmptyText;
+    private boolean mScheduled;
+    private boolean mClosed;
+
+    /**
+     * 推送状态, 线程安全
+     *
+     * @param state
+     * @param errorText null保持不变
+     * @param emptyText null保持不变
+     * @return true 需要安排一次poll
+     */
+    public boolean offer(ViewState state, CharSequence errorText, CharSequence emptyText) {
+        synchronized (mLock) {
+            if (mClosed) {
+                return false;
+            }
+            mPendingState = state;
+            if (errorText != null) {
+                mPendingErrorText = errorText;
+            }
+            if (emptyText != null) {
+                mPendingEmptyText = emptyText;
+            }
+            if (mScheduled) {
+                return false;
+            }
+            mScheduled = true;
+            return true;
+        }
+    }
+
+    /**
+     * 取出最新的值并清空
+     *
+     * @param out
+     * @return false 没有待应用的状态或者已经关闭
+     */
+    public boolean poll(Update out) {
+        synchronized (mLock) {
+            mScheduled = false;
+            out.state = mPendingState;
+            out.errorText = mPendingErrorText;
+            out.emptyText = mPendingEmptyText;
+            mPendingState = null;
+            mPendingErrorText = null;
+            mPendingEmptyText = null;
+            return !mClosed && out.state != null;
+        }
+    }
+
+    /**
+     * 关闭后丢弃待应用的值, 之后的offer被忽略
+     */
+    public void close() {
+        synchronized (mLock) {
+            mClosed = true;
+            mScheduled = false;
+            mPendingState = null;
+            mPendingErrorText = null;
+            mPendingEmptyText = null;
+        }
+    }
+}
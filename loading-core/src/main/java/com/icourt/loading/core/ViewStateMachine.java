@@ -0,0 +1,261 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CUSTOM;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description AlphaStateLayout的状态选择: loading延迟显示/最短显示时间内合并状态切换, 时间窗口内只保留最后一次设置的状态
+ * <p>
+ * 不持有view, 延迟由{@link Callback#schedule(long)}交给宿主安排, 到时间后宿主调用{@link #commitPending()};
+ * 非线程安全, 只在一个线程(主线程)使用
+ * @Company Beijing icourt
+ * @date createTime：2017/12/12
+ */
+public final class ViewStateMachine {
+
+    public static final int NO_STATE = -1;
+
+    public interface Callback {
+        /**
+         * delayMillis后调用{@link #commitPending()}, 替换之前安排的
+         *
+         * @param delayMillis
+         */
+        void schedule(long delayMillis);
+
+        /**
+         * 取消{@link #schedule(long)}安排的调用
+         */
+        void cancel();
+
+        /**
+         * 状态已经切换
+         *
+         * @param previous
+         * @param current
+         * @param customState 只在{@link ViewState#VIEW_STATE_CUSTOM}时有意义
+         * @param dwellMillis previous状态停留的时间
+         */
+        void onStateApplied(ViewState previous, ViewState current, int customState, long dwellMillis);
+
+        /**
+         * 请求已经生效, 但与当前显示的状态相同, 没有切换;
+         * 例如loading延迟期间又切回原来的状态, 等待中的loading被丢弃
+         *
+         * @param state
+         * @param customState
+         */
+        void onStateUnchanged(ViewState state, int customState);
+    }
+
+    private final Clock mClock;
+    private final Callback mCallback;
+
+    private ViewState mViewState;
+    private int mCustomState = NO_STATE;
+    /**
+     * 等待延迟生效的状态
+     */
+    private ViewState mPendingState;
+    private int mPendingCustomState = NO_STATE;
+    private long mPendingAt;
+    private long mLoadingShowDelay;
+    private long mLoadingMinShowTime;
+    /**
+     * 进入当前状态的时间, 用于loading最短显示时间和状态停留时长; 恢复计时时向后平移, 不包含暂停的时间
+     */
+    private long mStateEnteredAt;
+    /**
+     * 停留计时暂停的时间, 没有暂停时为-1
+     */
+    private long mDwellPausedAt = -1;
+
+    public ViewStateMachine(ViewState initialState, Clock clock, Callback callback) {
+        if (initialState == null || clock == null || callback == null) {
+            throw new NullPointerException();
+        }
+        mViewState = initialState;
+        mClock = clock;
+        mCallback = callback;
+        mStateEnteredAt = clock.uptimeMillis();
+    }
+
+    /**
+     * loading延迟显示的时间, 在此之前切换到其他状态则loading不会显示
+     *
+     * @param delayMillis 小于等于0时立即显示
+     */
+    public void setLoadingShowDelay(long delayMillis) {
+        mLoadingShowDelay = delayMillis;
+    }
+
+    /**
+     * loading显示后最短的显示时间, 避免一闪而过
+     *
+     * @param minShowTimeMillis 小于等于0时不限制
+     */
+    public void setLoadingMinShowTime(long minShowTimeMillis) {
+        mLoadingMinShowTime = minShowTimeMillis;
+    }
+
+    /**
+     * 当前显示的状态
+     *
+     * @return
+     */
+    public ViewState getCurrentState() {
+        return mViewState;
+    }
+
+    public int getCurrentCustomState() {
+        return mCustomState;
+    }
+
+    /**
+     * 最后一次设置的状态, 可能还在等待生效
+     *
+     * @return
+     */
+    public ViewState getRequestedState() {
+        return mPendingState != null ? mPendingState : mViewState;
+    }
+
+    public int getRequestedCustomState() {
+        return mPendingState != null ? mPendingCustomState : mCustomState;
+    }
+
+    public boolean hasPendingState() {
+        return mPendingState != null;
+    }
+
+    /**
+     * 当前状态已经持续的时间(ms)
+     *
+     * @return
+     */
+    public long getCurrentStateDuration() {
+        return dwellNow() - mStateEnteredAt;
+    }
+
+    /**
+     * 暂停停留计时, 例如view detach时; 暂停期间切换的状态停留时间从0开始
+     */
+    public void pauseDwell() {
+        if (mDwellPausedAt < 0) {
+            mDwellPausedAt = mClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * 恢复停留计时, 暂停的时间不计入当前状态, loading最短显示时间也相应顺延
+     */
+    public void resumeDwell() {
+        if (mDwellPausedAt >= 0) {
+            mStateEnteredAt += mClock.uptimeMillis() - mDwellPausedAt;
+            mDwellPausedAt = -1;
+        }
+    }
+
+    public boolean isDwellPaused() {
+        return mDwellPausedAt >= 0;
+    }
+
+    private long dwellNow() {
+        return mDwellPausedAt >= 0 ? mDwellPausedAt : mClock.uptimeMillis();
+    }
+
+    /**
+     * 按照loading延迟显示/最短显示时间请求切换状态
+     *
+     * @param state
+     * @param customState
+     */
+    public void request(ViewState state, int customState) {
+        mCallback.cancel();
+        long now = mClock.uptimeMillis();
+        boolean showing = mViewState == VIEW_STATE_LOADING;
+
+        if (state == VIEW_STATE_LOADING && !showing && mLoadingShowDelay > 0) {
+            // 已经在等待显示loading时不重新计时
+            if (mPendingState != VIEW_STATE_LOADING) {
+                mPendingAt = now + mLoadingShowDelay;
+            }
+            postPending(state, customState, mPendingAt - now);
+            return;
+        }
+        if (showing && state != VIEW_STATE_LOADING && mLoadingMinShowTime > 0) {
+            long remaining = mStateEnteredAt + mLoadingMinShowTime - now;
+            if (remaining > 0) {
+                postPending(state, customState, remaining);
+                return;
+            }
+        }
+        mPendingState = null;
+        apply(state, customState, now);
+    }
+
+    /**
+     * 立即切换, 丢弃等待中的状态, 例如恢复保存的状态
+     *
+     * @param state
+     * @param customState
+     */
+    public void applyNow(ViewState state, int customState) {
+        cancelPending();
+        apply(state, customState, mClock.uptimeMillis());
+    }
+
+    /**
+     * 延迟时间到了, 应用等待中的状态
+     */
+    public void commitPending() {
+        ViewState state = mPendingState;
+        if (state == null) {
+            return;
+        }
+        mPendingState = null;
+        mCallback.cancel();
+        apply(state, mPendingCustomState, mClock.uptimeMillis());
+    }
+
+    /**
+     * 宿主暂停后(例如view detach时取消了{@link Callback#schedule(long)})重新安排等待中的状态,
+     * loading延迟仍从最初请求时开始计算, 已经过期的立即生效
+     */
+    public void reschedulePending() {
+        if (mPendingState != null) {
+            request(mPendingState, mPendingCustomState);
+        }
+    }
+
+    public void cancelPending() {
+        mCallback.cancel();
+        mPendingState = null;
+    }
+
+    private void postPending(ViewState state, int customState, long delayMillis) {
+        mPendingState = state;
+        mPendingCustomState = customState;
+        mCallback.schedule(delayMillis);
+    }
+
+    private void apply(ViewState state, int customState, long now) {
+        if (state == mViewState && (state != VIEW_STATE_CUSTOM || customState == mCustomState)) {
+            mCallback.onStateUnchanged(state, customState);
+            return;
+        }
+        ViewState previous = mViewState;
+        mViewState = state;
+        mCustomState = customState;
+        long dwell = dwellNow() - mStateEnteredAt;
+        mStateEnteredAt = now;
+        if (mDwellPausedAt >= 0) {
+            mDwellPausedAt = now;
+        }
+        mCallback.onStateApplied(previous, state, customState, dwell);
+    }
+}
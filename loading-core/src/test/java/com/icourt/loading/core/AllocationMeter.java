@@ -0,0 +1,59 @@
+package com.icourt.loading.core;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 统计当前线程分配的字节数, 依赖HotSpot的com.sun.management.ThreadMXBean
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+final class AllocationMeter {
+
+    private final com.sun.management.ThreadMXBean mBean;
+    private final long mThreadId = Thread.currentThread().getId();
+
+    private AllocationMeter(com.sun.management.ThreadMXBean bean) {
+        mBean = bean;
+    }
+
+    /**
+     * @return 当前jvm不支持时返回null
+     */
+    static AllocationMeter create() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return new AllocationMeter(sunBean);
+    }
+
+    /**
+     * 执行action时分配的字节数; 先预热, 让类加载/JIT和懒初始化的分配不计入
+     *
+     * @param action
+     * @param warmupRuns
+     * @return
+     */
+    long measure(Runnable action, int warmupRuns) {
+        for (int i = 0; i < warmupRuns; i++) {
+            action.run();
+        }
+        // 读取计数本身可能分配, 扣除一次空测量
+        long start = allocatedBytes();
+        long overhead = allocatedBytes() - start;
+        start = allocatedBytes();
+        action.run();
+        return allocatedBytes() - start - overhead;
+    }
+
+    private long allocatedBytes() {
+        return mBean.getThreadAllocatedBytes(mThreadId);
+    }
+}
@@ -0,0 +1,41 @@
+package com.icourt.loading.core;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 按60fps的vsync驱动{@link FrameDispatcher}, 代替AlphaFrameTicker中的Choreographer回调;
+ * 与AlphaFrameTicker相同, 只在监听者要求的时间之后的第一个vsync回调
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+final class FakeChoreographer {
+
+    static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+    final FrameDispatcher dispatcher = new FrameDispatcher();
+    private long mFrameTimeNanos = 1000000000L;
+    private long mNextFrameAt;
+
+    /**
+     * @param count vsync个数
+     * @return 实际分发的帧数, 没有监听者时停止
+     */
+    int runFrames(int count) {
+        int dispatched = 0;
+        for (int i = 0; i < count; i++) {
+            mFrameTimeNanos += FRAME_INTERVAL_NANOS;
+            // 与AlphaFrameTicker相同, 换算成ms
+            long frameTime = mFrameTimeNanos / 1000000L;
+            if (frameTime < mNextFrameAt) {
+                continue;
+            }
+            dispatched++;
+            long delay = dispatcher.dispatch(frameTime);
+            if (delay == FrameDispatcher.NO_FRAME) {
+                return dispatched;
+            }
+            mNextFrameAt = frameTime + delay;
+        }
+        return dispatched;
+    }
+}
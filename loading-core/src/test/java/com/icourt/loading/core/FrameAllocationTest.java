@@ -0,0 +1,141 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description loading动画稳定播放时每帧不分配对象
+ * <p>
+ * 用{@link FakeChoreographer}驱动AlphaFrameDrawable使用的{@link FrameAnimator}, 覆盖AlphaLoadingView,
+ * AlphaLoading的icon(同一个共享时钟)和AlphaLoadingTextureView的绘制线程调度;
+ * 任意一帧分配对象(最小16字节)都会超过允许的误差
+ * @Company Beijing icourt
+ * @date createTime：2017/12/13
+ */
+public class FrameAllocationTest {
+
+    private static final int FRAMES = 10000;
+    private static final int WARMUP_RUNS = 20;
+    /**
+     * 允许的测量误差(字节), 远小于每帧分配一个对象的总量
+     */
+    private static final long TOLERANCE_BYTES = 1024;
+
+    /**
+     * 默认loading动画: 45帧, 每帧42ms
+     */
+    private static final int[] DEFAULT_DURATIONS = new int[45];
+
+    static {
+        for (int i = 0; i < DEFAULT_DURATIONS.length; i++) {
+            DEFAULT_DURATIONS[i] = 42;
+        }
+    }
+
+    /**
+     * AlphaFrameDrawable的取帧逻辑, selectDrawable只计数
+     */
+    private static final class FrameDrawable implements FrameAnimator.Callback {
+        final FrameAnimator animator = new FrameAnimator(DEFAULT_DURATIONS, this);
+        int frameChanges;
+
+        FrameDrawable() {
+            animator.start();
+        }
+
+        @Override
+        public void onFrameChanged(int frame) {
+            frameChanges++;
+        }
+    }
+
+    private AllocationMeter mMeter;
+
+    @Before
+    public void setUp() {
+        mMeter = AllocationMeter.create();
+        assumeTrue("thread allocation counting is not supported on this JVM", mMeter != null);
+    }
+
+    @Test
+    public void loadingViewAndDialogIcon_allocateNothingPerFrame() {
+        final FakeChoreographer choreographer = new FakeChoreographer();
+        final FrameDrawable loadingView = new FrameDrawable();
+        final FrameDrawable dialogIcon = new FrameDrawable();
+        final FrameDrawable lowEndView = new FrameDrawable();
+        lowEndView.animator.setFrameInterval(1000 / 12);
+        choreographer.dispatcher.add(loadingView.animator);
+        choreographer.dispatcher.add(dialogIcon.animator);
+        choreographer.dispatcher.add(lowEndView.animator);
+
+        long bytes = mMeter.measure(new Runnable() {
+            @Override
+            public void run() {
+                choreographer.runFrames(FRAMES);
+            }
+        }, WARMUP_RUNS);
+
+        assertNoAllocation(bytes);
+        assertTrue(loadingView.frameChanges > FRAMES);
+        assertEquals(loadingView.animator.getCurrentFrame(), dialogIcon.animator.getCurrentFrame());
+        assertTrue(lowEndView.frameChanges < loadingView.frameChanges);
+    }
+
+    @Test
+    public void textureRendererScheduling_allocatesNothingPerFrame() {
+        final FrameTimeline timeline = new FrameTimeline(DEFAULT_DURATIONS);
+        timeline.setFrameInterval(1000 / 12);
+        final long[] state = new long[2];
+
+        long bytes = mMeter.measure(new Runnable() {
+            @Override
+            public void run() {
+                // 与Renderer.drawFrame相同: 取帧, 计算到下一帧的延迟
+                long time = state[0];
+                long frames = state[1];
+                for (int i = 0; i < FRAMES; i++) {
+                    frames += timeline.frameAt(time);
+                    time += timeline.delayToNextFrame(time);
+                }
+                state[0] = time;
+                state[1] = frames;
+            }
+        }, WARMUP_RUNS);
+
+        assertNoAllocation(bytes);
+        assertTrue(state[1] > 0);
+    }
+
+    @Test
+    public void stateBindingPerFrame_allocatesNothing() {
+        final StateCoalescer coalescer = new StateCoalescer();
+        final StateCoalescer.Update update = new StateCoalescer.Update();
+        final CharSequence errorText = "error";
+
+        long bytes = mMeter.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < FRAMES; i++) {
+                    coalescer.offer(ViewState.VIEW_STATE_LOADING, null, null);
+                    coalescer.offer(ViewState.VIEW_STATE_ERROR, errorText, null);
+                    coalescer.poll(update);
+                }
+            }
+        }, WARMUP_RUNS);
+
+        assertNoAllocation(bytes);
+        assertEquals(ViewState.VIEW_STATE_ERROR, update.state);
+    }
+
+    private static void assertNoAllocation(long bytes) {
+        assertTrue("allocated " + bytes + " bytes over " + FRAMES + " frames", bytes < TOLERANCE_BYTES);
+    }
+}
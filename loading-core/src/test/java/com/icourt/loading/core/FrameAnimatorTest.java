@@ -0,0 +1,74 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description FrameAnimator只在换帧时通知宿主, 停止后不再要求回调
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class FrameAnimatorTest {
+
+    private final int[] mChanges = new int[1];
+    private final FrameAnimator mAnimator = new FrameAnimator(new int[]{42, 42, 42, 42}, new FrameAnimator.Callback() {
+        @Override
+        public void onFrameChanged(int frame) {
+            mChanges[0]++;
+        }
+    });
+
+    @Test
+    public void tick_notifiesOnlyOnFrameChange() {
+        mAnimator.start();
+
+        assertEquals(42, mAnimator.onTick(0));
+        assertEquals(0, mChanges[0]);
+        assertEquals(26, mAnimator.onTick(16));
+        assertEquals(0, mChanges[0]);
+
+        assertEquals(42, mAnimator.onTick(42));
+        assertEquals(1, mChanges[0]);
+        assertEquals(1, mAnimator.getCurrentFrame());
+        mAnimator.onTick(50);
+        assertEquals(1, mChanges[0]);
+    }
+
+    @Test
+    public void stopped_returnsNoFrame() {
+        assertEquals(FrameDispatcher.NO_FRAME, mAnimator.onTick(100));
+        assertEquals(0, mAnimator.getCurrentFrame());
+
+        assertTrue(mAnimator.start());
+        assertFalse(mAnimator.start());
+        assertTrue(mAnimator.onTick(100) > 0);
+
+        assertTrue(mAnimator.stop());
+        assertFalse(mAnimator.stop());
+        assertEquals(FrameDispatcher.NO_FRAME, mAnimator.onTick(200));
+        assertEquals(2, mAnimator.getCurrentFrame());
+    }
+
+    /**
+     * 降低帧率后跳过中间帧, 下一次回调推迟到下一个显示的帧
+     */
+    @Test
+    public void frameInterval_skipsFramesAndStretchesDelay() {
+        mAnimator.start();
+        assertTrue(mAnimator.setFrameInterval(84));
+        assertFalse(mAnimator.setFrameInterval(84));
+
+        assertEquals(84, mAnimator.onTick(0));
+        assertEquals(0, mAnimator.getCurrentFrame());
+        assertEquals(42, mAnimator.onTick(42));
+        assertEquals(0, mChanges[0]);
+        mAnimator.onTick(84);
+        assertEquals(2, mAnimator.getCurrentFrame());
+        assertEquals(1, mChanges[0]);
+    }
+}
@@ -0,0 +1,115 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description FrameDispatcher按最早的换帧时间安排下一次回调
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class FrameDispatcherTest {
+
+    private static FrameDispatcher.Listener fixedDelay(final long delay) {
+        return new FrameDispatcher.Listener() {
+            @Override
+            public long onTick(long frameTimeMillis) {
+                return delay;
+            }
+        };
+    }
+
+    @Test
+    public void dispatch_returnsEarliestDelay() {
+        FrameDispatcher dispatcher = new FrameDispatcher();
+        dispatcher.add(fixedDelay(83));
+        dispatcher.add(fixedDelay(FrameDispatcher.NO_FRAME));
+        dispatcher.add(fixedDelay(42));
+
+        assertEquals(42, dispatcher.dispatch(1000));
+    }
+
+    @Test
+    public void dispatch_returnsNoFrameWhenNothingIsDue() {
+        FrameDispatcher dispatcher = new FrameDispatcher();
+        assertEquals(FrameDispatcher.NO_FRAME, dispatcher.dispatch(1000));
+
+        dispatcher.add(fixedDelay(FrameDispatcher.NO_FRAME));
+        assertEquals(FrameDispatcher.NO_FRAME, dispatcher.dispatch(1000));
+    }
+
+    @Test
+    public void addDuringDispatch_requestsNextFrame() {
+        final FrameDispatcher dispatcher = new FrameDispatcher();
+        final FrameDispatcher.Listener added = fixedDelay(500);
+        dispatcher.add(new FrameDispatcher.Listener() {
+            @Override
+            public long onTick(long frameTimeMillis) {
+                dispatcher.add(added);
+                return 500;
+            }
+        });
+
+        assertEquals(0, dispatcher.dispatch(1000));
+        assertEquals(500, dispatcher.dispatch(1000));
+    }
+
+    @Test
+    public void removeDuringDispatch_takesEffectNextFrame() {
+        final FakeChoreographer choreographer = new FakeChoreographer();
+        final int[] ticks = new int[2];
+        final FrameDispatcher.Listener second = new FrameDispatcher.Listener() {
+            @Override
+            public long onTick(long frameTimeMillis) {
+                ticks[1]++;
+                return 0;
+            }
+        };
+        FrameDispatcher.Listener first = new FrameDispatcher.Listener() {
+            @Override
+            public long onTick(long frameTimeMillis) {
+                ticks[0]++;
+                choreographer.dispatcher.remove(this);
+                choreographer.dispatcher.remove(second);
+                return 0;
+            }
+        };
+        choreographer.dispatcher.add(first);
+        choreographer.dispatcher.add(second);
+
+        int frames = choreographer.runFrames(10);
+
+        assertEquals(1, frames);
+        assertEquals(1, ticks[0]);
+        assertEquals(1, ticks[1]);
+        assertTrue(choreographer.dispatcher.isEmpty());
+    }
+
+    /**
+     * 42ms一帧的动画在60fps下大约每2.5个vsync换一帧, 只在换帧时回调
+     */
+    @Test
+    public void timelineListener_skipsVsyncsWithoutFrameChange() {
+        FakeChoreographer choreographer = new FakeChoreographer();
+        final int[] frameChanges = new int[1];
+        FrameAnimator animator = new FrameAnimator(new int[]{42, 42, 42, 42}, new FrameAnimator.Callback() {
+            @Override
+            public void onFrameChanged(int frame) {
+                frameChanges[0]++;
+            }
+        });
+        animator.start();
+        choreographer.dispatcher.add(animator);
+
+        int vsyncs = 600;
+        int dispatched = choreographer.runFrames(vsyncs);
+
+        assertTrue("dispatched " + dispatched + " of " + vsyncs, dispatched < vsyncs / 2);
+        // 第一次回调时仍是第0帧, 之后每次回调都换帧
+        assertEquals(frameChanges[0] + 1, dispatched);
+    }
+}
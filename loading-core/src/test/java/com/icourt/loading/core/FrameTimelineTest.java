@@ -0,0 +1,84 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 降低帧率时跳帧步长同时决定取哪一帧和下一次回调的时间
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class FrameTimelineTest {
+
+    /**
+     * 默认loading动画: 45帧, 每帧42ms
+     */
+    private static FrameTimeline defaultTimeline() {
+        int[] durations = new int[45];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = 42;
+        }
+        return new FrameTimeline(durations);
+    }
+
+    @Test
+    public void fullRate_delayIsRemainingFrameTime() {
+        FrameTimeline timeline = defaultTimeline();
+
+        assertEquals(0, timeline.frameAt(0));
+        assertEquals(42, timeline.delayToNextFrame(0));
+        assertEquals(1, timeline.frameAt(42));
+        assertEquals(12, timeline.delayToNextFrame(72));
+    }
+
+    @Test
+    public void frameInterval_stretchesDelayToNextShownFrame() {
+        FrameTimeline timeline = defaultTimeline();
+        // 8fps, 约3帧一换
+        assertTrue(timeline.setFrameInterval(125));
+        assertEquals(3, timeline.getFrameStride());
+
+        assertEquals(0, timeline.frameAt(100));
+        assertEquals(26, timeline.delayToNextFrame(100));
+        assertEquals(3, timeline.frameAt(126));
+        assertEquals(126, timeline.delayToNextFrame(126));
+    }
+
+    @Test
+    public void setFrameInterval_reportsStrideChange() {
+        FrameTimeline timeline = defaultTimeline();
+
+        assertFalse(timeline.setFrameInterval(0));
+        assertTrue(timeline.setFrameInterval(1000 / 12));
+        assertFalse(timeline.setFrameInterval(1000 / 12));
+        assertTrue(timeline.setFrameInterval(0));
+        assertEquals(1, timeline.getFrameStride());
+    }
+
+    /**
+     * 每次回调都在步长对应的下一帧, 回调次数与显示的帧数一致
+     */
+    @Test
+    public void reducedRate_ticksOncePerShownFrame() {
+        final FrameTimeline timeline = defaultTimeline();
+        timeline.setFrameInterval(125);
+        FakeChoreographer choreographer = new FakeChoreographer();
+        choreographer.dispatcher.add(new FrameDispatcher.Listener() {
+            @Override
+            public long onTick(long frameTimeMillis) {
+                return timeline.delayToNextFrame(frameTimeMillis);
+            }
+        });
+
+        // 60个vsync约1秒
+        int dispatched = choreographer.runFrames(60);
+
+        assertTrue("dispatched " + dispatched, dispatched <= 9);
+        assertTrue("dispatched " + dispatched, dispatched >= 7);
+    }
+}
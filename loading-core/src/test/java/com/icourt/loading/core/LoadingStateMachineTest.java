@@ -0,0 +1,81 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description LoadingStateMachine的状态转换, dismiss期间再次show
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class LoadingStateMachineTest {
+
+    private final LoadingStateMachine mStates = new LoadingStateMachine();
+
+    @Test
+    public void showResultDismiss_cyclesBackToFree() {
+        assertTrue(mStates.show());
+        assertTrue(mStates.isShowing());
+        assertFalse(mStates.show());
+
+        assertTrue(mStates.startResult());
+        assertEquals(LoadingStateMachine.STATE_RESULTING, mStates.getState());
+        assertFalse(mStates.dismiss());
+
+        mStates.finishResult();
+        assertEquals(LoadingStateMachine.STATE_DISMISSING, mStates.getState());
+        assertFalse(mStates.isShowing());
+
+        mStates.release();
+        assertEquals(LoadingStateMachine.STATE_FREE, mStates.getState());
+        assertFalse(mStates.consumeReshow());
+    }
+
+    /**
+     * dismiss期间show不立即显示, dismiss完成后取出一次
+     */
+    @Test
+    public void showWhileDismissing_reshowsOnceAfterRelease() {
+        mStates.show();
+        assertTrue(mStates.dismiss());
+
+        assertFalse(mStates.show());
+        assertFalse(mStates.show());
+        assertEquals(LoadingStateMachine.STATE_DISMISSING, mStates.getState());
+
+        mStates.release();
+        assertTrue(mStates.consumeReshow());
+        assertFalse(mStates.consumeReshow());
+        assertTrue(mStates.show());
+    }
+
+    /**
+     * 宿主销毁时丢弃之前记下的重新显示
+     */
+    @Test
+    public void dismissLossState_dropsPendingReshow() {
+        mStates.show();
+        mStates.startResult();
+        mStates.finishResult();
+        mStates.show();
+        mStates.release();
+        assertTrue(mStates.show());
+
+        assertTrue(mStates.dismissLossState());
+        mStates.release();
+        assertFalse(mStates.consumeReshow());
+        assertFalse(mStates.dismissLossState());
+    }
+
+    @Test
+    public void dismissOrResult_whenFree_isIgnored() {
+        assertFalse(mStates.dismiss());
+        assertFalse(mStates.startResult());
+        assertEquals(LoadingStateMachine.STATE_FREE, mStates.getState());
+    }
+}
@@ -0,0 +1,79 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description RetryBackoff的指数增长, 上限和抖动范围
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class RetryBackoffTest {
+
+    @Test
+    public void noJitter_growsExponentiallyUpToMax() {
+        RetryBackoff backoff = new RetryBackoff(new Random(1));
+        backoff.setJitter(0f);
+
+        assertEquals(1000, backoff.delayFor(1));
+        assertEquals(2000, backoff.delayFor(2));
+        assertEquals(16000, backoff.delayFor(5));
+        assertEquals(RetryBackoff.DEFAULT_MAX_DELAY, backoff.delayFor(6));
+        assertEquals(RetryBackoff.DEFAULT_MAX_DELAY, backoff.delayFor(1000));
+    }
+
+    @Test
+    public void failuresBelowOne_useBaseDelay() {
+        RetryBackoff backoff = new RetryBackoff(new Random(1));
+        backoff.setJitter(0f);
+
+        assertEquals(1000, backoff.delayFor(0));
+        assertEquals(1000, backoff.delayFor(-3));
+    }
+
+    /**
+     * 抖动后的等待时间在[delay * (1 - jitter), delay]内
+     */
+    @Test
+    public void jitter_staysWithinBounds() {
+        RetryBackoff backoff = new RetryBackoff(new Random(42));
+        backoff.setJitter(0.5f);
+        for (int failures = 1; failures <= 8; failures++) {
+            long max = Math.min(1000L << (failures - 1), RetryBackoff.DEFAULT_MAX_DELAY);
+            for (int i = 0; i < 200; i++) {
+                long delay = backoff.delayFor(failures);
+                assertTrue(delay + " > " + max, delay <= max);
+                assertTrue(delay + " < " + max / 2, delay >= max / 2);
+            }
+        }
+    }
+
+    @Test
+    public void setters_clampOutOfRangeValues() {
+        RetryBackoff backoff = new RetryBackoff(new Random(1));
+        backoff.setJitter(-1f);
+        backoff.setMultiplier(0.5f);
+        backoff.setBaseDelay(500);
+        assertEquals(500, backoff.delayFor(3));
+
+        backoff.setBaseDelay(-1);
+        assertEquals(0, backoff.delayFor(1));
+
+        backoff.setBaseDelay(500);
+        backoff.setMaxDelay(-1);
+        assertEquals(0, backoff.delayFor(1));
+
+        backoff.setMaxDelay(RetryBackoff.DEFAULT_MAX_DELAY);
+        backoff.setJitter(2f);
+        for (int i = 0; i < 100; i++) {
+            long delay = backoff.delayFor(1);
+            assertTrue(delay >= 0 && delay <= 500);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.icourt.loading.core;
+
+import org.junit.Test;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description StateCoalescer只安排一次poll, 保留最新的状态和文案
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class StateCoalescerTest {
+
+    private final StateCoalescer mCoalescer = new StateCoalescer();
+    private final StateCoalescer.Update mUpdate = new StateCoalescer.Update();
+
+    @Test
+    public void offersBeforePoll_scheduleOnceAndKeepLatest() {
+        assertTrue(mCoalescer.offer(VIEW_STATE_LOADING, null, null));
+        assertFalse(mCoalescer.offer(VIEW_STATE_ERROR, "error", null));
+        assertFalse(mCoalescer.offer(VIEW_STATE_CONTENT, null, "empty"));
+
+        assertTrue(mCoalescer.poll(mUpdate));
+        assertEquals(VIEW_STATE_CONTENT, mUpdate.state);
+        assertEquals("error", mUpdate.errorText);
+        assertEquals("empty", mUpdate.emptyText);
+
+        // poll之后的推送重新安排
+        assertTrue(mCoalescer.offer(VIEW_STATE_LOADING, null, null));
+    }
+
+    /**
+     * 取出后清空, 文案不会带到下一次
+     */
+    @Test
+    public void poll_clearsValues() {
+        mCoalescer.offer(VIEW_STATE_ERROR, "error", null);
+        mCoalescer.poll(mUpdate);
+
+        assertFalse(mCoalescer.poll(mUpdate));
+        assertNull(mUpdate.state);
+        assertNull(mUpdate.errorText);
+
+        mCoalescer.offer(VIEW_STATE_ERROR, null, null);
+        assertTrue(mCoalescer.poll(mUpdate));
+        assertNull(mUpdate.errorText);
+    }
+
+    @Test
+    public void close_dropsPendingAndIgnoresOffers() {
+        mCoalescer.offer(VIEW_STATE_ERROR, "error", null);
+        mCoalescer.close();
+
+        assertFalse(mCoalescer.poll(mUpdate));
+        assertNull(mUpdate.state);
+        assertFalse(mCoalescer.offer(VIEW_STATE_CONTENT, null, null));
+        assertFalse(mCoalescer.poll(mUpdate));
+    }
+}
@@ -0,0 +1,274 @@
+package com.icourt.loading.core;
+
+import com.icourt.loading.ViewState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_EMPTY;
+import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description ViewStateMachine的loading延迟显示/最短显示时间, 时间窗口内的状态合并
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+public class ViewStateMachineTest {
+
+    private final ManualClock mClock = new ManualClock();
+    private final RecordingCallback mCallback = new RecordingCallback();
+    private ViewStateMachine mStates;
+
+    @Before
+    public void setUp() {
+        mStates = new ViewStateMachine(VIEW_STATE_CONTENT, mClock, mCallback);
+    }
+
+    /**
+     * loading延迟期间返回了与当前相同的状态: loading被丢弃, 通过onStateUnchanged通知请求已经结束
+     */
+    @Test
+    public void sameStateDuringShowDelay_dropsLoadingAndReportsUnchanged() {
+        mStates.applyNow(VIEW_STATE_ERROR, ViewStateMachine.NO_STATE);
+        mCallback.clear();
+        mStates.setLoadingShowDelay(300);
+
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        assertEquals(VIEW_STATE_LOADING, mStates.getRequestedState());
+        assertEquals(300, mCallback.scheduledDelay);
+
+        mClock.now += 100;
+        mCallback.cancelCount = 0;
+        mStates.request(VIEW_STATE_ERROR, ViewStateMachine.NO_STATE);
+
+        assertFalse(mStates.hasPendingState());
+        assertEquals(VIEW_STATE_ERROR, mStates.getCurrentState());
+        assertEquals(0, mCallback.appliedCount);
+        assertEquals(VIEW_STATE_ERROR, mCallback.unchanged);
+        assertEquals(1, mCallback.cancelCount);
+    }
+
+    @Test
+    public void noDelays_requestAppliesImmediately() {
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+
+        assertFalse(mStates.hasPendingState());
+        assertEquals(VIEW_STATE_LOADING, mStates.getCurrentState());
+        assertEquals(1, mCallback.appliedCount);
+        assertEquals(VIEW_STATE_CONTENT, mCallback.previous);
+        assertEquals(-1, mCallback.scheduledDelay);
+    }
+
+    /**
+     * loading延迟期间的多次请求只保留最后一次, 重复请求loading不重新计时
+     */
+    @Test
+    public void showDelay_coalescesRequestsAndKeepsDeadline() {
+        mStates.setLoadingShowDelay(300);
+
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        assertEquals(300, mCallback.scheduledDelay);
+
+        mClock.now += 100;
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        assertEquals(200, mCallback.scheduledDelay);
+        assertEquals(VIEW_STATE_CONTENT, mStates.getCurrentState());
+        assertEquals(VIEW_STATE_LOADING, mStates.getRequestedState());
+
+        mClock.now += 200;
+        mStates.commitPending();
+        assertEquals(VIEW_STATE_LOADING, mStates.getCurrentState());
+        assertEquals(1, mCallback.appliedCount);
+        assertFalse(mStates.hasPendingState());
+    }
+
+    /**
+     * 延迟期间切到其他状态: loading不会显示, 直接切换
+     */
+    @Test
+    public void showDelay_otherStateBeforeDeadline_skipsLoading() {
+        mStates.setLoadingShowDelay(300);
+
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        mClock.now += 100;
+        mStates.request(VIEW_STATE_EMPTY, ViewStateMachine.NO_STATE);
+
+        assertFalse(mStates.hasPendingState());
+        assertEquals(VIEW_STATE_EMPTY, mStates.getCurrentState());
+        assertEquals(1, mCallback.appliedCount);
+        assertEquals(VIEW_STATE_CONTENT, mCallback.previous);
+
+        // 已经取消的回调晚到也不会再切换
+        mStates.commitPending();
+        assertEquals(1, mCallback.appliedCount);
+    }
+
+    /**
+     * loading最短显示时间内的请求等到剩余时间后生效, 期间只保留最后一次
+     */
+    @Test
+    public void minShowTime_defersAndCoalescesUntilElapsed() {
+        mStates.setLoadingMinShowTime(500);
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        mCallback.clear();
+
+        mClock.now += 200;
+        mStates.request(VIEW_STATE_CONTENT, ViewStateMachine.NO_STATE);
+        assertEquals(300, mCallback.scheduledDelay);
+        assertEquals(VIEW_STATE_LOADING, mStates.getCurrentState());
+
+        mClock.now += 100;
+        mStates.request(VIEW_STATE_ERROR, ViewStateMachine.NO_STATE);
+        assertEquals(200, mCallback.scheduledDelay);
+        assertEquals(VIEW_STATE_ERROR, mStates.getRequestedState());
+
+        mClock.now += 200;
+        mStates.commitPending();
+        assertEquals(VIEW_STATE_ERROR, mStates.getCurrentState());
+        assertEquals(1, mCallback.appliedCount);
+        assertEquals(VIEW_STATE_LOADING, mCallback.previous);
+        assertEquals(500, mCallback.dwell);
+    }
+
+    @Test
+    public void minShowTime_elapsed_appliesImmediately() {
+        mStates.setLoadingMinShowTime(500);
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        mCallback.clear();
+
+        mClock.now += 600;
+        mStates.request(VIEW_STATE_CONTENT, ViewStateMachine.NO_STATE);
+
+        assertFalse(mStates.hasPendingState());
+        assertEquals(VIEW_STATE_CONTENT, mStates.getCurrentState());
+        assertEquals(-1, mCallback.scheduledDelay);
+        assertEquals(600, mCallback.dwell);
+    }
+
+    /**
+     * 暂停停留计时的时间不计入loading最短显示时间
+     */
+    @Test
+    public void minShowTime_excludesPausedTime() {
+        mStates.setLoadingMinShowTime(500);
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        mCallback.clear();
+
+        mClock.now += 200;
+        mStates.pauseDwell();
+        mClock.now += 1000;
+        mStates.resumeDwell();
+        assertEquals(200, mStates.getCurrentStateDuration());
+
+        mStates.request(VIEW_STATE_CONTENT, ViewStateMachine.NO_STATE);
+        assertEquals(300, mCallback.scheduledDelay);
+        assertEquals(VIEW_STATE_LOADING, mStates.getCurrentState());
+    }
+
+    @Test
+    public void applyNow_discardsPendingState() {
+        mStates.setLoadingShowDelay(300);
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+        mCallback.clear();
+
+        mStates.applyNow(VIEW_STATE_ERROR, ViewStateMachine.NO_STATE);
+
+        assertFalse(mStates.hasPendingState());
+        assertEquals(VIEW_STATE_ERROR, mStates.getCurrentState());
+        assertTrue(mCallback.cancelCount > 0);
+        assertEquals(1, mCallback.appliedCount);
+
+        mClock.now += 300;
+        mStates.commitPending();
+        assertEquals(VIEW_STATE_ERROR, mStates.getCurrentState());
+        assertEquals(1, mCallback.appliedCount);
+    }
+
+    /**
+     * 宿主取消回调后重新安排: 延迟仍从最初请求时计算
+     */
+    @Test
+    public void reschedulePending_keepsOriginalDeadline() {
+        mStates.setLoadingShowDelay(300);
+        mStates.request(VIEW_STATE_LOADING, ViewStateMachine.NO_STATE);
+
+        mClock.now += 250;
+        mStates.reschedulePending();
+        assertEquals(50, mCallback.scheduledDelay);
+
+        // 已经过期的安排为立即执行
+        mClock.now += 100;
+        mStates.reschedulePending();
+        assertTrue(mCallback.scheduledDelay <= 0);
+        assertTrue(mStates.hasPendingState());
+    }
+
+    @Test
+    public void commitPending_withoutPending_isNoOp() {
+        mStates.commitPending();
+
+        assertEquals(VIEW_STATE_CONTENT, mStates.getCurrentState());
+        assertEquals(0, mCallback.appliedCount);
+        assertNull(mCallback.unchanged);
+    }
+
+    static final class ManualClock implements Clock {
+        long now = 1000;
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+    }
+
+    static final class RecordingCallback implements ViewStateMachine.Callback {
+        long scheduledDelay = -1;
+        int cancelCount;
+        int appliedCount;
+        ViewState previous;
+        ViewState applied;
+        long dwell = -1;
+        ViewState unchanged;
+
+        @Override
+        public void schedule(long delayMillis) {
+            scheduledDelay = delayMillis;
+        }
+
+        @Override
+        public void cancel() {
+            cancelCount++;
+        }
+
+        @Override
+        public void onStateApplied(ViewState previous, ViewState current, int customState, long dwellMillis) {
+            appliedCount++;
+            this.previous = previous;
+            applied = current;
+            dwell = dwellMillis;
+        }
+
+        @Override
+        public void onStateUnchanged(ViewState state, int customState) {
+            unchanged = state;
+        }
+
+        void clear() {
+            scheduledDelay = -1;
+            cancelCount = 0;
+            appliedCount = 0;
+            previous = null;
+            applied = null;
+            dwell = -1;
+            unchanged = null;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.icourt.loading;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SdkSuppress;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_EMPTY;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * overlay模式下默认状态布局的可见性和布局
+ */
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN_MR2)
+public class AlphaStateAttacherOverlayTest {
+
+    @Rule
+    public ActivityTestRule<Activity> activityRule = new ActivityTestRule<>(Activity.class);
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    private View mTarget;
+    private AlphaStateAttacher mAttacher;
+
+    @Before
+    public void setUp() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Activity activity = activityRule.getActivity();
+                FrameLayout parent = new FrameLayout(activity);
+                mTarget = new View(activity);
+                parent.addView(mTarget, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                activity.setContentView(parent);
+                mAttacher = AlphaStateAttacher.attach(mTarget, AlphaStateAttacher.MODE_OVERLAY);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+    }
+
+    @Test
+    public void defaultLoadingLayout_isLaidOutAndShown() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAttacher.showLoadingView();
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+
+        View loading = mAttacher.getView(VIEW_STATE_LOADING);
+        assertNotNull(loading);
+        AlphaLoadingView imageView = (AlphaLoadingView) loading.findViewById(R.id.alpha_loading_view_iv);
+        assertEquals(mTarget.getWidth(), loading.getWidth());
+        assertEquals(mTarget.getHeight(), loading.getHeight());
+        assertTrue(imageView.getWidth() > 0);
+        assertFalse(imageView.isShown());
+        assertTrue(ViewportVisibility.isShown(imageView));
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAttacher.setViewState(VIEW_STATE_CONTENT);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        assertFalse(ViewportVisibility.isShown(imageView));
+        assertFalse(imageView.isOnScreen());
+    }
+
+    @Test
+    public void emptyLayout_relayoutsAfterTextChange() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAttacher.setEmptyText("a");
+                mAttacher.setViewState(VIEW_STATE_EMPTY);
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        View empty = mAttacher.getView(VIEW_STATE_EMPTY);
+        assertNotNull(empty);
+        final TextView textView = (TextView) empty.findViewById(R.id.alpha_empty_view_tv);
+        int shortWidth = textView.getWidth();
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mAttacher.setEmptyText("a much longer empty text");
+            }
+        });
+        mInstrumentation.waitForIdleSync();
+        assertFalse(textView.isLayoutRequested());
+        assertTrue(textView.getWidth() > shortWidth);
+    }
+}
@@ -0,0 +1,196 @@
+package com.icourt.loading;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.ImageView;
+
+import com.icourt.loading.core.FrameAnimator;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 由{@link AlphaFrameTicker}驱动的帧动画
+ * <p>
+ * 包装AnimationDrawable, 不再使用它自己的scheduleSelf, 只通过selectDrawable切换帧;
+ * 当前帧由共享时钟计算, 所有实例显示同一帧, 帧没有变化时不会invalidate, 共享时钟只在换帧时回调;
+ * 降低帧率时按固定步长跳帧, 见{@link #setFrameInterval(long)}; 取帧逻辑在{@link FrameAnimator}中
+ * @Company Beijing icourt
+ * @date createTime：2017/12/04
+ */
+final class AlphaFrameDrawable extends Drawable implements Animatable, Drawable.Callback, AlphaFrameTicker.Listener,
+        FrameAnimator.Callback {
+
+    private final AnimationDrawable mFrames;
+    private final FrameAnimator mAnimator;
+
+    /**
+     * 如果imageView当前是循环播放的AnimationDrawable, 替换为共享时钟驱动的版本
+     *
+     * @param imageView
+     */
+    static void wrap(@NonNull ImageView imageView) {
+        Drawable drawable = imageView.getDrawable();
+        if (drawable instanceof AnimationDrawable && canWrap((AnimationDrawable) drawable)) {
+            imageView.setImageDrawable(new AlphaFrameDrawable((AnimationDrawable) drawable));
+        }
+    }
+
+    static boolean canWrap(@NonNull AnimationDrawable drawable) {
+        return !drawable.isOneShot() && drawable.getNumberOfFrames() > 1;
+    }
+
+    AlphaFrameDrawable(@NonNull AnimationDrawable frames) {
+        if (frames.isRunning()) {
+            frames.stop();
+        }
+        mFrames = frames;
+        int[] durations = new int[frames.getNumberOfFrames()];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = frames.getDuration(i);
+        }
+        mAnimator = new FrameAnimator(durations, this);
+        frames.setCallback(this);
+        frames.selectDrawable(0);
+    }
+
+    /**
+     * 设置两帧之间的最短间隔, 换算成均匀的跳帧步长; 共享时钟的回调间隔也随之变化
+     *
+     * @param intervalMillis 0表示原始帧率
+     */
+    void setFrameInterval(long intervalMillis) {
+        if (mAnimator.setFrameInterval(intervalMillis) && mAnimator.isRunning() && isVisible()) {
+            // 已经按原来的步长安排了下一次回调, 提高帧率时需要提前
+            AlphaFrameTicker.getInstance().requestFrame();
+        }
+    }
+
+    /**
+     * 被包装的帧, 用于内存统计
+     *
+     * @return
+     */
+    @NonNull
+    AnimationDrawable getFrames() {
+        return mFrames;
+    }
+
+    @Override
+    public void start() {
+        if (mAnimator.start() && isVisible()) {
+            AlphaFrameTicker.getInstance().add(this);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mAnimator.stop()) {
+            AlphaFrameTicker.getInstance().remove(this);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mAnimator.isRunning();
+    }
+
+    @Override
+    public long onTick(long frameTimeMillis) {
+        return mAnimator.onTick(frameTimeMillis);
+    }
+
+    @Override
+    public void onFrameChanged(int frame) {
+        mFrames.selectDrawable(frame);
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        mFrames.setVisible(visible, false);
+        if (mAnimator.isRunning()) {
+            if (visible) {
+                AlphaFrameTicker.getInstance().add(this);
+            } else {
+                AlphaFrameTicker.getInstance().remove(this);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        mFrames.draw(canvas);
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mFrames.setBounds(bounds);
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        return mFrames.setState(state);
+    }
+
+    @Override
+    public boolean isStateful() {
+        return mFrames.isStateful();
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        return mFrames.setLevel(level);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mFrames.getIntrinsicWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mFrames.getIntrinsicHeight();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mFrames.setAlpha(alpha);
+    }
+
+    @Override
+    public int getAlpha() {
+        return mFrames.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mFrames.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        return mFrames.getOpacity();
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+}
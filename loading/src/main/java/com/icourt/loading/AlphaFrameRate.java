@@ -0,0 +1,141 @@
+package com.icourt.loading;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description loading帧动画的帧率策略
+ * <p>
+ * 降低帧率时按固定步长均匀跳帧, 例如原始24fps的动画在12fps时每帧停留两倍时长;
+ * {@link #AUTO}时: 省电模式或者系统关闭了动画(动画时长缩放为0)使用8fps,
+ * 低端设备(系统低内存设备或者{@link #setLowEndDevice(boolean)})使用12fps, 其他情况使用原始帧率
+ * @Company Beijing icourt
+ * @date createTime：2017/12/05
+ */
+public final class AlphaFrameRate {
+
+    /**
+     * 按设备状态自动选择
+     */
+    public static final int AUTO = 0;
+    /**
+     * 动画资源的原始帧率
+     */
+    public static final int FULL = -1;
+    public static final int FPS_12 = 12;
+    public static final int FPS_8 = 8;
+
+    @IntDef({AUTO, FULL, FPS_12, FPS_8})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface FrameRate {
+    }
+
+    private static int sDefaultFrameRate = AUTO;
+    private static boolean sLowEndDevice;
+
+    private AlphaFrameRate() {
+    }
+
+    /**
+     * 全局默认帧率, 单个view/dialog没有指定时使用
+     *
+     * @param frameRate
+     */
+    public static void setDefaultFrameRate(@FrameRate int frameRate) {
+        sDefaultFrameRate = frameRate;
+    }
+
+    /**
+     * 由应用声明当前是低端设备, 例如根据自己的机型配置
+     *
+     * @param lowEndDevice
+     */
+    public static void setLowEndDevice(boolean lowEndDevice) {
+        sLowEndDevice = lowEndDevice;
+    }
+
+    /**
+     * 实际使用的帧率
+     *
+     * @param context
+     * @param frameRate 单个view/dialog指定的帧率
+     * @return 每秒帧数, {@link #FULL}表示原始帧率
+     */
+    static int resolve(@NonNull Context context, @FrameRate int frameRate) {
+        if (frameRate != AUTO) {
+            return frameRate;
+        }
+        if (sDefaultFrameRate != AUTO) {
+            return sDefaultFrameRate;
+        }
+        if (isPowerSaveMode(context) || isAnimationDisabled(context)) {
+            return FPS_8;
+        }
+        if (sLowEndDevice || isLowRamDevice(context)) {
+            return FPS_12;
+        }
+        return FULL;
+    }
+
+    /**
+     * 两帧之间的最短间隔
+     *
+     * @param context
+     * @param frameRate
+     * @return 毫秒, 0表示原始帧率
+     */
+    static long frameInterval(@NonNull Context context, @FrameRate int frameRate) {
+        int fps = resolve(context, frameRate);
+        return fps > 0 ? 1000L / fps : 0L;
+    }
+
+    private static boolean isPowerSaveMode(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        return isPowerSaveModeV21(context);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static boolean isPowerSaveModeV21(Context context) {
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return pm != null && pm.isPowerSaveMode();
+    }
+
+    private static boolean isAnimationDisabled(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return false;
+        }
+        return isAnimationDisabledV17(context);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static boolean isAnimationDisabledV17(Context context) {
+        return Settings.Global.getFloat(context.getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f) == 0f;
+    }
+
+    private static boolean isLowRamDevice(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return false;
+        }
+        return isLowRamDeviceV19(context);
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean isLowRamDeviceV19(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return am != null && am.isLowRamDevice();
+    }
+}
@@ -0,0 +1,155 @@
+package com.icourt.loading;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import com.icourt.loading.core.FrameDispatcher;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 进程内共享的帧时钟, 只在主线程使用
+ * <p>
+ * 所有正在播放的{@link AlphaFrameDrawable}共用一个Choreographer回调,
+ * 每帧的调度开销不随loading个数增加, 分发时不分配对象; 没有监听者时不再注册回调;
+ * 只在最早的一次换帧时回调(postFrameCallbackDelayed), 不是每个vsync都唤醒主线程
+ * @Company Beijing icourt
+ * @date createTime：2017/12/04
+ */
+final class AlphaFrameTicker {
+
+    /**
+     * API 16以下没有Choreographer, 用Handler模拟, 两次回调至少间隔一个60fps的帧
+     */
+    private static final long FALLBACK_FRAME_DELAY = 16L;
+
+    /**
+     * frameTimeMillis与{@link SystemClock#uptimeMillis()}同一时间基准
+     */
+    interface Listener extends FrameDispatcher.Listener {
+    }
+
+    private static AlphaFrameTicker sInstance;
+
+    private final FrameDispatcher mDispatcher = new FrameDispatcher();
+    private boolean mScheduled;
+    /**
+     * 已安排的回调时间, 与{@link SystemClock#uptimeMillis()}同一时间基准
+     */
+    private long mScheduledAt;
+    private long mLastFrameAt;
+    private Handler mHandler;
+    private Object mFrameCallback;
+
+    private final Runnable mFallbackTick = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(SystemClock.uptimeMillis());
+        }
+    };
+
+    static AlphaFrameTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new AlphaFrameTicker();
+        }
+        return sInstance;
+    }
+
+    private AlphaFrameTicker() {
+    }
+
+    void add(@NonNull Listener listener) {
+        mDispatcher.add(listener);
+        requestFrame();
+    }
+
+    void remove(@NonNull Listener listener) {
+        mDispatcher.remove(listener);
+        if (mDispatcher.isEmpty()) {
+            cancelFrame();
+        }
+    }
+
+    /**
+     * 下一帧回调所有监听者, 例如新加入的监听者需要立即取帧
+     */
+    void requestFrame() {
+        scheduleFrame(SystemClock.uptimeMillis());
+    }
+
+    private void doFrame(long frameTimeMillis) {
+        mScheduled = false;
+        // 回调在安排的时间之后才执行, 但vsync的时间戳可能略早, 按安排的时间取帧, 避免差一点没换帧又多等一个vsync
+        long time = Math.max(frameTimeMillis, mScheduledAt);
+        mLastFrameAt = time;
+        long delay = mDispatcher.dispatch(time);
+        if (delay != FrameDispatcher.NO_FRAME) {
+            scheduleFrame(time + delay);
+        }
+    }
+
+    /**
+     * @param frameAtMillis 希望回调的时间, 已经安排了更早的回调时忽略
+     */
+    private void scheduleFrame(long frameAtMillis) {
+        if (mScheduled) {
+            if (mScheduledAt <= frameAtMillis) {
+                return;
+            }
+            cancelFrame();
+        }
+        mScheduled = true;
+        mScheduledAt = frameAtMillis;
+        long delay = frameAtMillis - SystemClock.uptimeMillis();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback(delay);
+        } else {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            mHandler.postAtTime(mFallbackTick, Math.max(frameAtMillis, mLastFrameAt + FALLBACK_FRAME_DELAY));
+        }
+    }
+
+    private void cancelFrame() {
+        if (!mScheduled) {
+            return;
+        }
+        mScheduled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            removeFrameCallback();
+        } else if (mHandler != null) {
+            mHandler.removeCallbacks(mFallbackTick);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback(long delayMillis) {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    AlphaFrameTicker.this.doFrame(frameTimeNanos / 1000000L);
+                }
+            };
+        }
+        Choreographer.FrameCallback callback = (Choreographer.FrameCallback) mFrameCallback;
+        if (delayMillis > 0) {
+            Choreographer.getInstance().postFrameCallbackDelayed(callback, delayMillis);
+        } else {
+            Choreographer.getInstance().postFrameCallback(callback);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.graphics.drawable.Animatable;
+import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Handler;
@@ -14,6 +15,7 @@ import android.os.Looper;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 import android.text.TextUtils;
 import android.view.View;
@@ -21,8 +23,11 @@ import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.icourt.loading.core.LoadingStateMachine;
+
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
@@ -38,10 +43,10 @@ public class AlphaLoading {
 
     private static final String TAG = "AlphaLoading";
 
-    public static final int STATE_FREE = 0;
-    public static final int STATE_LOADING = 1;
-    public static final int STATE_RESULTING = 2;
-    public static final int STATE_DISMISSING = 3;
+    public static final int STATE_FREE = LoadingStateMachine.STATE_FREE;
+    public static final int STATE_LOADING = LoadingStateMachine.STATE_LOADING;
+    public static final int STATE_RESULTING = LoadingStateMachine.STATE_RESULTING;
+    public static final int STATE_DISMISSING = LoadingStateMachine.STATE_DISMISSING;
 
     private static int sDefaultLoadingDrawable = R.drawable.alpha_loading;
     private static int sDefaultOkIcon = R.drawable.alpha_ic_ok;
@@ -56,11 +61,15 @@ public class AlphaLoading {
     }
 
     private final ImageView mIconView;
+    /**
+     * 使用独立线程绘制loading时的view, 结果图标仍然由mIconView显示
+     */
+    @Nullable
+    private final AlphaLoadingTextureView mTextureView;
     private final TextView mMsgView;
     private final DialogInterface.OnDismissListener mDismissListener;
     private Handler mHandler;
-    @State
-    private int mState;
+    private final LoadingStateMachine mStates = new LoadingStateMachine();
     @DrawableRes
     private final int mLoadingDrawable;
     @DrawableRes
@@ -68,7 +77,8 @@ public class AlphaLoading {
     @DrawableRes
     private final int mFailDrawableRes;
     private final long mResultDuration;
-    private boolean mReshowingWhileDismissing;
+    @AlphaFrameRate.FrameRate
+    private final int mFrameRate;
 
     public static void setDefaultLoadingDrawable(@DrawableRes int defaultLoadingDrawable) {
         sDefaultLoadingDrawable = defaultLoadingDrawable;
@@ -95,62 +105,78 @@ public class AlphaLoading {
     }
 
     private AlphaLoading(Builder b) {
-        mState = STATE_FREE;
-
-        mOkDrawableRes = b.okIcon;
-        mFailDrawableRes = b.failIcon;
-
-        Dialog dialog = new Dialog(b.context, R.style.style_alpha_loading);
-        dialog.setContentView(R.layout.alpha_dialog_loading);
-
-        ImageView iconView = (ImageView) dialog.findViewById(R.id.alpha_iv_icon);
-        TextView msgView = (TextView) dialog.findViewById(R.id.alpha_tv_message);
-        this.mIconView = iconView;
-        this.mMsgView = msgView;
+        boolean traced = AlphaTrace.begin(AlphaTrace.LOADING_INIT);
+        try {
+            mOkDrawableRes = b.okIcon;
+            mFailDrawableRes = b.failIcon;
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            LayoutTransition lt = new LayoutTransition();
-            lt.enableTransitionType(LayoutTransition.CHANGING);
-            ((ViewGroup) dialog.findViewById(R.id.alpha_content_view)).setLayoutTransition(lt);
-        }
+            Dialog dialog = new Dialog(b.context, R.style.style_alpha_loading);
+            dialog.setContentView(R.layout.alpha_dialog_loading);
 
-        setMessage(b.message);
+            ImageView iconView = (ImageView) dialog.findViewById(R.id.alpha_iv_icon);
+            TextView msgView = (TextView) dialog.findViewById(R.id.alpha_tv_message);
+            this.mIconView = iconView;
+            this.mMsgView = msgView;
 
-        mLoadingDrawable = b.loadingDrawable;
-        try {
-            iconView.setImageResource(mLoadingDrawable);
-        } catch (OutOfMemoryError ignored) {
-        }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                LayoutTransition lt = new LayoutTransition();
+                lt.enableTransitionType(LayoutTransition.CHANGING);
+                ((ViewGroup) dialog.findViewById(R.id.alpha_content_view)).setLayoutTransition(lt);
+            }
 
-        dialog.setCancelable(b.cancelable);
-        dialog.setCanceledOnTouchOutside(b.cancelable);
-        dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
-            @Override
-            public void onCancel(DialogInterface dialog) {
-                release();
+            setMessage(b.message);
+
+            mLoadingDrawable = b.renderThreadAnimation && !b.textureRenderer
+                    && AlphaLoadingView.isRenderThreadAnimationSupported()
+                    ? R.drawable.alpha_loading_rt : b.loadingDrawable;
+            mFrameRate = b.frameRate;
+            if (b.textureRenderer) {
+                ViewGroup contentView = (ViewGroup) dialog.findViewById(R.id.alpha_content_view);
+                ViewGroup.LayoutParams iconLp = iconView.getLayoutParams();
+                AlphaLoadingTextureView textureView = new AlphaLoadingTextureView(b.context);
+                textureView.setAnimationResource(mLoadingDrawable);
+                textureView.setFrameRate(mFrameRate);
+                contentView.addView(textureView, contentView.indexOfChild(iconView),
+                        new LinearLayout.LayoutParams(iconLp.width, iconLp.height));
+                iconView.setVisibility(View.GONE);
+                mTextureView = textureView;
+            } else {
+                mTextureView = null;
+                setLoadingImage(iconView);
             }
-        });
-        dialog.setOnDismissListener(mDismissListener = new DialogInterface.OnDismissListener() {
-            @Override
-            public void onDismiss(DialogInterface dialog) {
-                release();
-                if (mReshowingWhileDismissing) {
-                    mReshowingWhileDismissing = false;
-                    show();
+
+            dialog.setCancelable(b.cancelable);
+            dialog.setCanceledOnTouchOutside(b.cancelable);
+            dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+                @Override
+                public void onCancel(DialogInterface dialog) {
+                    release();
                 }
+            });
+            dialog.setOnDismissListener(mDismissListener = new DialogInterface.OnDismissListener() {
+                @Override
+                public void onDismiss(DialogInterface dialog) {
+                    release();
+                    if (mStates.consumeReshow()) {
+                        show();
+                    }
+                }
+            });
+
+            Window window = dialog.getWindow();
+            if (window != null) {
+                window.addFlags(WindowManager.LayoutParams.FLAG_DIM_BEHIND);
+                WindowManager.LayoutParams lp = window.getAttributes();
+                lp.dimAmount = 0.3f;
+                window.setAttributes(lp);
             }
-        });
-
-        Window window = dialog.getWindow();
-        if (window != null) {
-            window.addFlags(WindowManager.LayoutParams.FLAG_DIM_BEHIND);
-            WindowManager.LayoutParams lp = window.getAttributes();
-            lp.dimAmount = 0.3f;
-            window.setAttributes(lp);
-        }
 
-        this.mResultDuration = b.resultDuration;
-        this.mDialog = dialog;
+            this.mResultDuration = b.resultDuration;
+            this.mDialog = dialog;
+            AlphaMemory.register(this);
+        } finally {
+            AlphaTrace.end(traced);
+        }
     }
 
     /**
@@ -172,21 +198,25 @@ public class AlphaLoading {
      * 显示loading
      */
     public void show() {
-        if (mState == STATE_FREE) {
-            mState = STATE_LOADING;
-
-            mDialog.show();
-            try {
-                mIconView.setImageResource(mLoadingDrawable);
-            } catch (OutOfMemoryError ignored) {
-            }
-            startLoadingAnimation();
+        boolean traced = AlphaTrace.begin(AlphaTrace.LOADING_SHOW);
+        try {
+            if (mStates.show()) {
+                mDialog.show();
+                if (mTextureView != null) {
+                    mTextureView.setAlpha(1);
+                    mTextureView.setVisibility(View.VISIBLE);
+                    mIconView.setVisibility(View.GONE);
+                } else {
+                    setLoadingImage(mIconView);
+                }
+                startLoadingAnimation();
 
-            if (mHandler == null) {
-                mHandler = new Handler(Looper.getMainLooper());
+                if (mHandler == null) {
+                    mHandler = new Handler(Looper.getMainLooper());
+                }
             }
-        } else if (mState == STATE_DISMISSING && !mReshowingWhileDismissing) {
-            mReshowingWhileDismissing = true;
+        } finally {
+            AlphaTrace.end(traced);
         }
     }
 
@@ -194,12 +224,16 @@ public class AlphaLoading {
      * 立马结束loading
      */
     public void dismissImmediately() {
-        if (mState == STATE_LOADING) {
-            mState = STATE_DISMISSING;
-            try {
-                mDialog.dismiss();
-            } catch (Exception ignored) {
+        boolean traced = AlphaTrace.begin(AlphaTrace.LOADING_DISMISS);
+        try {
+            if (mStates.dismiss()) {
+                try {
+                    mDialog.dismiss();
+                } catch (Exception ignored) {
+                }
             }
+        } finally {
+            AlphaTrace.end(traced);
         }
     }
 
@@ -229,54 +263,115 @@ public class AlphaLoading {
     }
 
     public void dismissWithResult(String msg, @DrawableRes final int resultIconRes, final Runnable endAction) {
-        if (mState == STATE_LOADING) {
-            mState = STATE_RESULTING;
-            setMessage(msg);
+        boolean traced = AlphaTrace.begin(AlphaTrace.LOADING_RESULT);
+        try {
+            if (mStates.startResult()) {
+                setMessage(msg);
             
-            mIconView.animate().alpha(0).setDuration(200).setListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    stopLoadingAnimation();
-                    try {
-                        mIconView.setImageResource(resultIconRes);
-                    } catch (OutOfMemoryError ignored) {
-                    }
-                    mIconView.animate().alpha(1).setListener(null).start();
-                }
-            }).start();
-            if (mHandler != null) {
-                mHandler.postDelayed(new Runnable() {
+                View loadingView = mTextureView != null ? mTextureView : mIconView;
+                loadingView.animate().alpha(0).setDuration(200).setListener(new AnimatorListenerAdapter() {
                     @Override
-                    public void run() {
-                        if (endAction == null) {
-                            try {
-                                mState = STATE_DISMISSING;
-                                mDialog.dismiss();
-                            } catch (Throwable ignored) {
-                            }
-                        } else {
+                    public void onAnimationEnd(Animator animation) {
+                        stopLoadingAnimation();
+                        if (mTextureView != null) {
+                            mTextureView.setVisibility(View.GONE);
+                            mIconView.setAlpha(0f);
+                            mIconView.setVisibility(View.VISIBLE);
+                        }
+                        boolean iconTraced = AlphaTrace.begin(AlphaTrace.LOADING_RESULT_ICON);
+                        try {
+                            mIconView.setImageResource(resultIconRes);
+                        } catch (OutOfMemoryError ignored) {
+                        } finally {
+                            AlphaTrace.end(iconTraced);
+                        }
+                        mIconView.animate().alpha(1).setListener(null).start();
+                    }
+                }).start();
+                if (mHandler != null) {
+                    mHandler.postDelayed(new Runnable() {
+                        @Override
+                        public void run() {
+                            boolean dismissTraced = AlphaTrace.begin(AlphaTrace.LOADING_DISMISS);
                             try {
-                                mDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
-                                    @Override
-                                    public void onDismiss(DialogInterface dialog) {
-                                        try {
-                                            mDialog.setOnDismissListener(mDismissListener);
-                                        } finally {
-                                            release();
-                                        }
-                                        if (endAction != null) {
-                                            endAction.run();
-                                        }
+                                if (endAction == null) {
+                                    try {
+                                        mStates.finishResult();
+                                        mDialog.dismiss();
+                                    } catch (Throwable ignored) {
                                     }
-                                });
-                                mState = STATE_DISMISSING;
-                                mDialog.dismiss();
-                            } catch (Throwable ignored) {
+                                } else {
+                                    try {
+                                        mDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+                                            @Override
+                                            public void onDismiss(DialogInterface dialog) {
+                                                try {
+                                                    mDialog.setOnDismissListener(mDismissListener);
+                                                } finally {
+                                                    release();
+                                                }
+                                                if (endAction != null) {
+                                                    endAction.run();
+                                                }
+                                            }
+                                        });
+                                        mStates.finishResult();
+                                        mDialog.dismiss();
+                                    } catch (Throwable ignored) {
+                                    }
+                                }
+                            } finally {
+                                AlphaTrace.end(dismissTraced);
                             }
                         }
-                    }
-                }, 200 + mResultDuration);
+                    }, 200 + mResultDuration);
+                }
             }
+        } finally {
+            AlphaTrace.end(traced);
+        }
+    }
+
+    /**
+     * icon当前显示的图片: loading帧或者结果图标, 用于内存统计
+     *
+     * @return
+     */
+    @Nullable
+    Drawable getIconDrawable() {
+        return mIconView.getDrawable();
+    }
+
+    /**
+     * 没有显示时释放icon上的图片, 下次show时重新设置
+     *
+     * @return 是否释放了图片
+     */
+    boolean releaseOffscreen() {
+        if (mStates.getState() != STATE_FREE || mIconView.getDrawable() == null) {
+            return false;
+        }
+        mIconView.setImageDrawable(null);
+        return true;
+    }
+
+    /**
+     * 按icon布局尺寸解码loading帧, 默认动画从图集解码; 不是位图帧时按资源加载
+     *
+     * @param iconView
+     */
+    private void setLoadingImage(ImageView iconView) {
+        try {
+            ViewGroup.LayoutParams lp = iconView.getLayoutParams();
+            AnimationDrawable frames = lp == null ? null
+                    : LoadingFrameDecoder.decode(iconView.getResources(), mLoadingDrawable, lp.width, lp.height);
+            if (frames != null) {
+                iconView.setImageDrawable(frames);
+            } else {
+                iconView.setImageResource(mLoadingDrawable);
+            }
+            AlphaFrameDrawable.wrap(iconView);
+        } catch (OutOfMemoryError ignored) {
         }
     }
 
@@ -291,6 +386,10 @@ public class AlphaLoading {
 
     private void startLoadingAnimation() {
         Drawable drawable = mIconView.getDrawable();
+        if (drawable instanceof AlphaFrameDrawable) {
+            ((AlphaFrameDrawable) drawable).setFrameInterval(
+                    AlphaFrameRate.frameInterval(mIconView.getContext(), mFrameRate));
+        }
         if (drawable != null && drawable instanceof Animatable) {
             if (!((Animatable) drawable).isRunning()) {
                 ((Animatable) drawable).start();
@@ -299,12 +398,12 @@ public class AlphaLoading {
     }
 
     private void release() {
-        if (mState == STATE_FREE) {
+        if (mStates.getState() == STATE_FREE) {
             return;
         }
 
         releaseResource();
-        mState = STATE_FREE;
+        mStates.release();
     }
 
     private void releaseResource() {
@@ -313,9 +412,13 @@ public class AlphaLoading {
             mHandler = null;
         }
 
-        if (mState == STATE_LOADING) {
+        int state = mStates.getState();
+        if (state == STATE_LOADING) {
             stopLoadingAnimation();
-        } else if (mState == STATE_RESULTING) {
+        } else if (state == STATE_RESULTING) {
+            if (mTextureView != null) {
+                mTextureView.animate().cancel();
+            }
             mIconView.animate().cancel();
         }
     }
@@ -326,10 +429,9 @@ public class AlphaLoading {
      * 适合用在dialog附带的activity/fragment销毁的时候调用
      */
     public void dismissImmediatelyLossState() {
-        if (mState == STATE_LOADING || mState == STATE_RESULTING) {
+        if (mStates.isShowing()) {
             releaseResource();
-            mReshowingWhileDismissing = false;
-            mState = STATE_DISMISSING;
+            mStates.dismissLossState();
             mDialog.setOnDismissListener(mDismissListener);
             try {
                 mDialog.dismiss();
@@ -340,7 +442,7 @@ public class AlphaLoading {
 
     @State
     public int getState() {
-        return mState;
+        return mStates.getState();
     }
 
     /**
@@ -349,7 +451,7 @@ public class AlphaLoading {
      * {@link #show()}
      */
     public boolean isShowing() {
-        return mState == STATE_LOADING || mState == STATE_RESULTING;
+        return mStates.isShowing();
     }
 
     public static class Builder {
@@ -360,6 +462,10 @@ public class AlphaLoading {
         private long resultDuration;
         private int okIcon, failIcon;
         private int loadingDrawable;
+        @AlphaFrameRate.FrameRate
+        private int frameRate = AlphaFrameRate.AUTO;
+        private boolean renderThreadAnimation;
+        private boolean textureRenderer;
 
         public Builder(@NonNull Context context) {
             this.context = context;
@@ -422,6 +528,31 @@ public class AlphaLoading {
             return this;
         }
 
+        /**
+         * @param frameRate loading动画帧率, 默认{@link AlphaFrameRate#AUTO}
+         */
+        public Builder frameRate(@AlphaFrameRate.FrameRate int frameRate) {
+            this.frameRate = frameRate;
+            return this;
+        }
+
+        /**
+         * @param enabled API 25+使用RenderThread上播放的矢量动画, 主线程卡顿时仍然转动; 设置后忽略{@link #loadingDrawable(int)}
+         */
+        public Builder renderThreadAnimation(boolean enabled) {
+            this.renderThreadAnimation = enabled;
+            return this;
+        }
+
+        /**
+         * @param enabled 在独立线程上绘制loading({@link AlphaLoadingTextureView}), 需要硬件加速;
+         *                开启后{@link #renderThreadAnimation(boolean)}无效
+         */
+        public Builder textureRenderer(boolean enabled) {
+            this.textureRenderer = enabled;
+            return this;
+        }
+
         public AlphaLoading create() {
             return new AlphaLoading(this);
         }
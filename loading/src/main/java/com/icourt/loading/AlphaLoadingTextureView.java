@@ -0,0 +1,491 @@
+package com.icourt.loading;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.RectF;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.TextureView;
+import android.view.View;
+
+import com.icourt.loading.core.FrameTimeline;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 在独立线程上绘制的loading, 主线程卡顿时动画不受影响
+ * <p>
+ * 与{@link AlphaLoadingView}使用相同的帧资源和alv_src/alv_frameRate/alv_tint属性;
+ * 帧资源不是位图时绘制一个旋转的圆弧; 可见且surface可用时才绘制, surface销毁时释放帧, detach时释放绘制线程;
+ * TextureView需要开启硬件加速
+ * @Company Beijing icourt
+ * @date createTime：2017/12/08
+ */
+public class AlphaLoadingTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    /**
+     * 程序化绘制时一圈的时长, 与帧动画一轮相同
+     */
+    private static final long ARC_CYCLE = 1890L;
+    private static final long ARC_FRAME_DELAY = 16L;
+
+    @DrawableRes
+    private int mAnimationRes;
+    @AlphaFrameRate.FrameRate
+    private int mFrameRate;
+    @Nullable
+    private ColorFilter mColorFilter;
+
+    /**
+     * 以下字段主线程和绘制线程共享, 通过mSurfaceLock同步; 锁只用于读写状态, 不在持有时绘制
+     */
+    private final Object mSurfaceLock = new Object();
+    private boolean mSurfaceReady;
+    private int mSurfaceWidth;
+    private int mSurfaceHeight;
+    /**
+     * 绘制线程正在使用canvas, 期间销毁的surface由绘制线程画完后释放, 主线程不等待
+     */
+    private boolean mDrawing;
+    @Nullable
+    private SurfaceTexture mPendingRelease;
+
+    private HandlerThread mThread;
+    private volatile Handler mRenderHandler;
+    private volatile boolean mRendering;
+    /**
+     * 每次开始/停止绘制时加一, 旧的绘制循环发现不一致后不再安排下一帧,
+     * 避免绘制线程正在执行时stop+start产生两条循环
+     */
+    private volatile int mRenderGeneration;
+    /**
+     * 主线程发布给绘制线程的参数快照, 绘制线程不读取view的状态
+     */
+    private volatile RenderConfig mConfig;
+    private final Renderer mRenderer = new Renderer();
+    /**
+     * 绘制线程正在使用的帧, 主线程只读, 用于内存统计
+     */
+    @Nullable
+    private volatile LoadingFrameDecoder.Frames mFramesInUse;
+    private final Runnable mReleaseFrames = new Runnable() {
+        @Override
+        public void run() {
+            mRenderer.release();
+        }
+    };
+
+    /**
+     * 绘制参数, 创建后不再修改
+     */
+    private static final class RenderConfig {
+        final Resources res;
+        @DrawableRes
+        final int animationRes;
+        final long frameInterval;
+        @Nullable
+        final ColorFilter colorFilter;
+        final int paddingLeft;
+        final int paddingTop;
+        final int paddingRight;
+        final int paddingBottom;
+
+        RenderConfig(Resources res, @DrawableRes int animationRes, long frameInterval,
+                     @Nullable ColorFilter colorFilter, int paddingLeft, int paddingTop,
+                     int paddingRight, int paddingBottom) {
+            this.res = res;
+            this.animationRes = animationRes;
+            this.frameInterval = frameInterval;
+            this.colorFilter = colorFilter;
+            this.paddingLeft = paddingLeft;
+            this.paddingTop = paddingTop;
+            this.paddingRight = paddingRight;
+            this.paddingBottom = paddingBottom;
+        }
+    }
+
+    public AlphaLoadingTextureView(Context context) {
+        this(context, null);
+    }
+
+    public AlphaLoadingTextureView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public AlphaLoadingTextureView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.AlphaLoadingView, defStyleAttr, 0);
+        mAnimationRes = a.getResourceId(R.styleable.AlphaLoadingView_alv_src, R.drawable.alpha_loading);
+        mFrameRate = a.getInt(R.styleable.AlphaLoadingView_alv_frameRate, AlphaFrameRate.AUTO);
+        if (a.hasValue(R.styleable.AlphaLoadingView_alv_tint)) {
+            setTint(a.getColor(R.styleable.AlphaLoadingView_alv_tint, 0));
+        }
+        a.recycle();
+        AlphaMemory.register(this);
+
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * 设置animation-list动画资源
+     *
+     * @param resId
+     */
+    public void setAnimationResource(@DrawableRes int resId) {
+        mAnimationRes = resId;
+        publishConfig();
+    }
+
+    public void setFrameRate(@AlphaFrameRate.FrameRate int frameRate) {
+        mFrameRate = frameRate;
+        publishConfig();
+    }
+
+    public void setTint(int color) {
+        mColorFilter = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN);
+        publishConfig();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        publishConfig();
+    }
+
+    @Override
+    public void setPaddingRelative(int start, int top, int end, int bottom) {
+        super.setPaddingRelative(start, top, end, bottom);
+        publishConfig();
+    }
+
+    /**
+     * 参数变化后生成新的快照, 绘制线程下一帧生效; 没有在绘制时等到开始绘制再生成
+     */
+    private void publishConfig() {
+        if (mRendering) {
+            mConfig = createConfig();
+        }
+    }
+
+    private RenderConfig createConfig() {
+        return new RenderConfig(getResources(), mAnimationRes,
+                AlphaFrameRate.frameInterval(getContext(), mFrameRate), mColorFilter,
+                getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom());
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        synchronized (mSurfaceLock) {
+            mSurfaceReady = true;
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+        }
+        updateRendering();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        synchronized (mSurfaceLock) {
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        boolean release;
+        synchronized (mSurfaceLock) {
+            mSurfaceReady = false;
+            // 正在绘制时交给绘制线程在释放canvas后销毁surface
+            release = !mDrawing;
+            if (!release) {
+                mPendingRelease = surface;
+            }
+        }
+        stopRendering();
+        releaseFrames();
+        return release;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateRendering();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRendering();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        stopRendering();
+        releaseFrames();
+        releaseThread();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * 是否正在绘制
+     *
+     * @return
+     */
+    public boolean isRendering() {
+        return mRendering;
+    }
+
+    /**
+     * 绘制线程持有的帧, 用于内存统计
+     *
+     * @return
+     */
+    @Nullable
+    LoadingFrameDecoder.Frames getFramesInUse() {
+        return mFramesInUse;
+    }
+
+    /**
+     * 没有在绘制时释放帧, 再次开始绘制时重新取得
+     *
+     * @return 是否释放了帧
+     */
+    boolean releaseOffscreen() {
+        if (mRendering || mFramesInUse == null) {
+            return false;
+        }
+        releaseFrames();
+        return true;
+    }
+
+    /**
+     * 帧只在绘制线程上访问, 在绘制线程上丢弃; 统计立即不再计入
+     */
+    private void releaseFrames() {
+        mFramesInUse = null;
+        Handler handler = mRenderHandler;
+        if (handler != null) {
+            handler.post(mReleaseFrames);
+        }
+    }
+
+    private void updateRendering() {
+        boolean ready;
+        synchronized (mSurfaceLock) {
+            ready = mSurfaceReady;
+        }
+        if (ready && ViewportVisibility.isShown(this) && getWindowVisibility() == VISIBLE) {
+            startRendering();
+        } else {
+            stopRendering();
+        }
+    }
+
+    private void startRendering() {
+        if (mRendering) {
+            return;
+        }
+        if (mThread == null) {
+            mThread = new HandlerThread("alpha-loading-render", Process.THREAD_PRIORITY_DISPLAY);
+            mThread.start();
+            mRenderHandler = new Handler(mThread.getLooper());
+        }
+        // 每次开始绘制时重新判断帧率, 省电模式等状态可能已经变化; 布局方向变化后padding也会变化
+        mConfig = createConfig();
+        mRendering = true;
+        mRenderHandler.postAtTime(new RenderLoop(++mRenderGeneration), mRenderer, SystemClock.uptimeMillis());
+    }
+
+    private void stopRendering() {
+        mRendering = false;
+        mRenderGeneration++;
+        if (mRenderHandler != null) {
+            // 只移除绘制循环, 保留释放帧的任务
+            mRenderHandler.removeCallbacksAndMessages(mRenderer);
+        }
+    }
+
+    private void releaseThread() {
+        if (mThread == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            mThread.quitSafely();
+        } else {
+            // quit会丢弃还没执行的任务, 排在释放帧之后退出
+            final HandlerThread thread = mThread;
+            mRenderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    thread.quit();
+                }
+            });
+        }
+        mThread = null;
+        mRenderHandler = null;
+    }
+
+    /**
+     * 一次startRendering对应的绘制循环, 每次绘制一帧并安排下一帧
+     */
+    private final class RenderLoop implements Runnable {
+
+        private final int mGeneration;
+
+        RenderLoop(int generation) {
+            mGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            if (mGeneration != mRenderGeneration) {
+                return;
+            }
+            long delay = mRenderer.render(mConfig);
+            Handler handler = mRenderHandler;
+            if (delay >= 0 && mGeneration == mRenderGeneration && handler != null) {
+                handler.postAtTime(this, mRenderer, SystemClock.uptimeMillis() + delay);
+            }
+        }
+    }
+
+    /**
+     * 绘制状态, 只在绘制线程上访问; paint由绘制线程持有, 不与主线程共享
+     */
+    private final class Renderer {
+
+        private final RectF mDst = new RectF();
+        private final RectF mFrameDst = new RectF();
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        private final Paint mArcPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private RenderConfig mAppliedConfig;
+        private LoadingFrameDecoder.Frames mFrames;
+        private FrameTimeline mTimeline;
+        private int mFrameWidth;
+        private int mFrameHeight;
+
+        Renderer() {
+            mArcPaint.setStyle(Paint.Style.STROKE);
+            mArcPaint.setStrokeCap(Paint.Cap.ROUND);
+            mArcPaint.setColor(0xFFE1E1E1);
+        }
+
+        /**
+         * 丢弃帧, 下一次绘制时重新取得
+         */
+        void release() {
+            mAppliedConfig = null;
+            mFrames = null;
+            mFramesInUse = null;
+            mTimeline = null;
+        }
+
+        /**
+         * @return 到下一帧的时间, surface已经不可用时返回-1
+         */
+        long render(RenderConfig config) {
+            int width;
+            int height;
+            synchronized (mSurfaceLock) {
+                width = mSurfaceWidth;
+                height = mSurfaceHeight;
+            }
+            // 解码和绘制都不持有锁, 避免surface销毁时阻塞主线程
+            ensureFrames(config, width, height);
+            synchronized (mSurfaceLock) {
+                if (!mSurfaceReady) {
+                    return -1;
+                }
+                mDrawing = true;
+            }
+            try {
+                Canvas canvas = lockCanvas();
+                if (canvas == null) {
+                    return ARC_FRAME_DELAY;
+                }
+                try {
+                    canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+                    return mFrames != null ? drawFrame(canvas, config) : drawArc(canvas, config);
+                } finally {
+                    unlockCanvasAndPost(canvas);
+                }
+            } finally {
+                SurfaceTexture pending;
+                synchronized (mSurfaceLock) {
+                    mDrawing = false;
+                    pending = mPendingRelease;
+                    mPendingRelease = null;
+                }
+                if (pending != null) {
+                    pending.release();
+                }
+            }
+        }
+
+        private void ensureFrames(RenderConfig config, int width, int height) {
+            int contentWidth = width - config.paddingLeft - config.paddingRight;
+            int contentHeight = height - config.paddingTop - config.paddingBottom;
+            RenderConfig applied = mAppliedConfig;
+            mAppliedConfig = config;
+            if (applied == null || applied.colorFilter != config.colorFilter) {
+                mPaint.setColorFilter(config.colorFilter);
+                mArcPaint.setColorFilter(config.colorFilter);
+            }
+            if (applied != null && applied.animationRes == config.animationRes
+                    && contentWidth == mFrameWidth && contentHeight == mFrameHeight) {
+                return;
+            }
+            mFrameWidth = contentWidth;
+            mFrameHeight = contentHeight;
+            mFrames = LoadingFrameDecoder.obtainFrames(config.res, config.animationRes, contentWidth, contentHeight);
+            mFramesInUse = mFrames;
+            mTimeline = mFrames != null ? new FrameTimeline(mFrames.durations) : null;
+            mArcPaint.setStrokeWidth(Math.min(contentWidth, contentHeight) * 5f / 128f);
+        }
+
+        /**
+         * @return 到下一帧的时间
+         */
+        private long drawFrame(Canvas canvas, RenderConfig config) {
+            long now = SystemClock.uptimeMillis();
+            mTimeline.setFrameInterval(config.frameInterval);
+            float left = config.paddingLeft + (mFrameWidth - mFrames.width) / 2f;
+            float top = config.paddingTop + (mFrameHeight - mFrames.height) / 2f;
+            mDst.set(left, top, left + mFrames.width, top + mFrames.height);
+            mFrames.draw(canvas, mTimeline.frameAt(now), mDst, mPaint, mFrameDst);
+            return mTimeline.delayToNextFrame(now);
+        }
+
+        private long drawArc(Canvas canvas, RenderConfig config) {
+            float stroke = mArcPaint.getStrokeWidth();
+            float size = Math.min(mFrameWidth, mFrameHeight) - stroke;
+            float left = config.paddingLeft + (mFrameWidth - size) / 2f;
+            float top = config.paddingTop + (mFrameHeight - size) / 2f;
+            mDst.set(left, top, left + size, top + size);
+            float fraction = (SystemClock.uptimeMillis() % ARC_CYCLE) / (float) ARC_CYCLE;
+            float sweep = 10f + 340f * (fraction < 0.5f ? fraction * 2f : (1f - fraction) * 2f);
+            canvas.drawArc(mDst, fraction * 360f - 90f, sweep, false, mArcPaint);
+            return config.frameInterval > 0 ? config.frameInterval : ARC_FRAME_DELAY;
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.icourt.loading;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
+import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.net.Uri;
+import android.os.Build;
+import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.AttributeSet;
 import android.view.View;
+import android.view.ViewTreeObserver;
 
 /**
  * Description
@@ -23,6 +31,58 @@ import android.view.View;
 public class AlphaLoadingView extends AppCompatImageView {
 
     private Animatable animatable;
+    private boolean attached;
+    @AlphaFrameRate.FrameRate
+    private int frameRate = AlphaFrameRate.AUTO;
+    @DrawableRes
+    private int animationRes;
+    private final int[] intrinsicSize = new int[2];
+    private int decodedWidth;
+    private int decodedHeight;
+    private boolean settingFrames;
+    /**
+     * 正在后台解码的帧, 资源或尺寸变化后旧的结果丢弃
+     */
+    @Nullable
+    private String pendingFrames;
+    private final Rect visibleRect = new Rect();
+    private final ViewportObserver viewportObserver = new ViewportObserver();
+
+    /**
+     * 滚动或布局变化后重新判断是否在可见区域内, 不使用OnPreDrawListener避免每帧计算;
+     * 一帧内的多次滚动只在下一帧判断一次
+     */
+    private final class ViewportObserver implements ViewTreeObserver.OnScrollChangedListener,
+            ViewTreeObserver.OnGlobalLayoutListener, Runnable {
+
+        private boolean scrollPending;
+
+        @Override
+        public void onScrollChanged() {
+            if (!scrollPending) {
+                scrollPending = true;
+                ViewCompat.postOnAnimation(AlphaLoadingView.this, this);
+            }
+        }
+
+        @Override
+        public void run() {
+            scrollPending = false;
+            updateAnimation();
+        }
+
+        void cancel() {
+            if (scrollPending) {
+                scrollPending = false;
+                removeCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            updateAnimation();
+        }
+    }
 
     public AlphaLoadingView(Context context) {
         this(context, null);
@@ -34,93 +94,290 @@ public class AlphaLoadingView extends AppCompatImageView {
 
     public AlphaLoadingView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        setImageResource(R.drawable.alpha_loading);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.AlphaLoadingView, defStyleAttr, 0);
+        int src = a.getResourceId(R.styleable.AlphaLoadingView_alv_src, R.drawable.alpha_loading);
+        frameRate = a.getInt(R.styleable.AlphaLoadingView_alv_frameRate, AlphaFrameRate.AUTO);
+        if (a.hasValue(R.styleable.AlphaLoadingView_alv_tint)) {
+            setColorFilter(a.getColor(R.styleable.AlphaLoadingView_alv_tint, 0), PorterDuff.Mode.SRC_IN);
+        }
+        boolean renderThread = a.getBoolean(R.styleable.AlphaLoadingView_alv_renderThread, false);
+        a.recycle();
+        AlphaMemory.register(this);
+        if (renderThread && isRenderThreadAnimationSupported()) {
+            setImageResource(R.drawable.alpha_loading_rt);
+        } else {
+            setAnimationResource(src);
+        }
     }
 
-    @Override
-    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
-        super.onVisibilityChanged(changedView, visibility);
+    /**
+     * API 25开始AnimatedVectorDrawable的动画在RenderThread上执行
+     *
+     * @return
+     */
+    static boolean isRenderThreadAnimationSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1;
+    }
 
-        if (visibility == VISIBLE) {
-            if (animatable != null && !animatable.isRunning()) {
-                animatable.start();
-            }
+    /**
+     * 使用RenderThread上播放的矢量动画, 主线程卡顿时仍然转动; 低于API 25时使用默认帧动画
+     *
+     * @param enabled false时恢复默认帧动画
+     */
+    public void setRenderThreadAnimation(boolean enabled) {
+        if (enabled && isRenderThreadAnimationSupported()) {
+            setImageResource(R.drawable.alpha_loading_rt);
         } else {
-            if (animatable != null && animatable.isRunning()) {
-                animatable.stop();
-            }
+            setAnimationResource(R.drawable.alpha_loading);
+        }
+    }
+
+    /**
+     * 设置animation-list动画资源, 每帧按view的尺寸解码;
+     * 不是由位图组成的animation-list时等同于{@link #setImageResource(int)}
+     *
+     * @param resId
+     */
+    public void setAnimationResource(@DrawableRes int resId) {
+        if (!LoadingFrameDecoder.getIntrinsicSize(getResources(), resId, intrinsicSize)) {
+            setImageResource(resId);
+            return;
+        }
+        animationRes = resId;
+        decodedWidth = 0;
+        decodedHeight = 0;
+        pendingFrames = null;
+        if (getWidth() > 0 && getHeight() > 0) {
+            loadFrames();
+        } else {
+            settingFrames = true;
+            setImageDrawable(null);
+            settingFrames = false;
+            requestLayout();
         }
     }
 
     @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (animationRes != 0 && getDrawable() == null) {
+            // 帧还没有解码, 按第一帧的尺寸测量
+            setMeasuredDimension(
+                    resolveSize(intrinsicSize[0] + getPaddingLeft() + getPaddingRight(), widthMeasureSpec),
+                    resolveSize(intrinsicSize[1] + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+            return;
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
 
-        if (animatable != null && animatable.isRunning()) {
-            animatable.stop();
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (animationRes != 0) {
+            loadFrames();
+        }
+    }
+
+    /**
+     * 命中缓存时直接设置, 否则在后台线程解码, 解码期间保留当前显示的帧;
+     * 可能从滚动回调中调用, 这里不能同步解码
+     */
+    private void loadFrames() {
+        final int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        final int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (width <= 0 || height <= 0 || (width == decodedWidth && height == decodedHeight)) {
+            return;
+        }
+        final int resId = animationRes;
+        final String key = LoadingFrameDecoder.key(resId, width, height);
+        if (key.equals(pendingFrames)) {
+            return;
         }
-        Drawable target = getDrawable();
-        if (target != null && target instanceof Animatable) {
-            animatable = (Animatable) target;
+        AnimationDrawable cached = LoadingFrameDecoder.peek(getResources(), resId, width, height);
+        if (cached != null) {
+            setFrames(cached, resId, width, height);
+            return;
         }
-        if (animatable != null && getVisibility() == VISIBLE) {
-            animatable.start();
+        pendingFrames = key;
+        LoadingFrameDecoder.decodeAsync(getResources(), resId, width, height, new LoadingFrameDecoder.Callback() {
+            @Override
+            public void onFramesDecoded(@Nullable AnimationDrawable frames) {
+                if (!key.equals(pendingFrames) || animationRes != resId) {
+                    return;
+                }
+                pendingFrames = null;
+                setFrames(frames, resId, width, height);
+            }
+        });
+    }
+
+    private void setFrames(@Nullable AnimationDrawable frames, @DrawableRes int resId, int width, int height) {
+        settingFrames = true;
+        if (frames != null) {
+            decodedWidth = width;
+            decodedHeight = height;
+            setImageDrawable(frames);
+        } else {
+            animationRes = 0;
+            setImageResource(resId);
+        }
+        settingFrames = false;
+    }
+
+    /**
+     * 外部设置了其他图片, 不再按尺寸解码
+     */
+    private void clearAnimationResource() {
+        if (!settingFrames) {
+            animationRes = 0;
+            pendingFrames = null;
         }
     }
 
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        // 应用退到后台/被其他Activity完全覆盖时窗口不可见
+        updateAnimation();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        updateAnimation();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(viewportObserver);
+        observer.addOnGlobalLayoutListener(viewportObserver);
+        updateAnimation();
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        attached = false;
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(viewportObserver);
+        viewportObserver.cancel();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            observer.removeOnGlobalLayoutListener(viewportObserver);
+        } else {
+            observer.removeGlobalOnLayoutListener(viewportObserver);
+        }
+        updateAnimation();
+    }
 
-        if (animatable != null && animatable.isRunning()) {
+    /**
+     * 只有真正显示在屏幕上时才播放动画:
+     * 已attach, 自身及父布局可见, 窗口可见且有焦点, 在窗口的可见区域内
+     */
+    private void updateAnimation() {
+        boolean released = animationRes != 0 && getDrawable() == null;
+        if (animatable == null && !released) {
+            return;
+        }
+        boolean onScreen = isOnScreen();
+        if (onScreen && released) {
+            // 帧被releaseOffscreen释放, 回到屏幕上时在后台重新解码, 设置后会再次进入这里开始播放
+            loadFrames();
+            return;
+        }
+        if (animatable == null) {
+            return;
+        }
+        if (onScreen) {
+            if (!animatable.isRunning()) {
+                if (animatable instanceof AlphaFrameDrawable) {
+                    // 每次开始播放时重新判断, 省电模式等状态可能已经变化
+                    ((AlphaFrameDrawable) animatable).setFrameInterval(
+                            AlphaFrameRate.frameInterval(getContext(), frameRate));
+                }
+                animatable.start();
+            }
+        } else if (animatable.isRunning()) {
             animatable.stop();
-            animatable = null;
         }
     }
 
+    boolean isOnScreen() {
+        return attached && ViewportVisibility.isOnScreen(this, visibleRect);
+    }
+
+    /**
+     * 不在屏幕上时释放按尺寸解码的帧, 回到屏幕上时重新解码; 外部设置的图片不释放
+     *
+     * @return 是否释放了帧
+     */
+    boolean releaseOffscreen() {
+        if (animationRes == 0 || getDrawable() == null || isOnScreen()) {
+            return false;
+        }
+        decodedWidth = 0;
+        decodedHeight = 0;
+        pendingFrames = null;
+        settingFrames = true;
+        setImageDrawable(null);
+        settingFrames = false;
+        return true;
+    }
+
     private void checkUpdatedForNewDrawable() {
         Drawable drawable = getDrawable();
-        if (drawable != animatable && drawable instanceof Animatable) {
-            if (animatable != null) {
-                animatable = (Animatable) drawable;
-                if (animatable.isRunning()) {
-                    animatable.stop();
-                }
-                if (getVisibility() == VISIBLE) {
-                    animatable.start();
-                }
-            } else {
-                animatable = null;
+        if (drawable instanceof AnimationDrawable && AlphaFrameDrawable.canWrap((AnimationDrawable) drawable)) {
+            // 帧动画改由共享时钟驱动
+            drawable = new AlphaFrameDrawable((AnimationDrawable) drawable);
+            super.setImageDrawable(drawable);
+        }
+        if (drawable != animatable) {
+            if (animatable != null && animatable.isRunning()) {
+                animatable.stop();
             }
+            animatable = drawable instanceof Animatable ? (Animatable) drawable : null;
+            updateAnimation();
         }
     }
 
     @Override
     public void setImageDrawable(@Nullable Drawable drawable) {
+        clearAnimationResource();
         super.setImageDrawable(drawable);
         checkUpdatedForNewDrawable();
     }
 
     @Override
     public void setImageURI(@Nullable Uri uri) {
+        clearAnimationResource();
         super.setImageURI(uri);
         checkUpdatedForNewDrawable();
     }
 
     @Override
     public void setImageBitmap(Bitmap bm) {
+        clearAnimationResource();
         super.setImageBitmap(bm);
         checkUpdatedForNewDrawable();
     }
 
     @Override
     public void setImageResource(int resId) {
+        clearAnimationResource();
         super.setImageResource(resId);
         checkUpdatedForNewDrawable();
     }
 
     @Override
     public void setImageIcon(@Nullable Icon icon) {
+        clearAnimationResource();
         super.setImageIcon(icon);
         checkUpdatedForNewDrawable();
     }
@@ -131,6 +388,18 @@ public class AlphaLoadingView extends AppCompatImageView {
         checkUpdatedForNewDrawable();
     }
 
+    /**
+     * 设置帧率, 默认{@link AlphaFrameRate#AUTO}
+     *
+     * @param frameRate
+     */
+    public void setFrameRate(@AlphaFrameRate.FrameRate int frameRate) {
+        this.frameRate = frameRate;
+        if (animatable instanceof AlphaFrameDrawable) {
+            ((AlphaFrameDrawable) animatable).setFrameInterval(AlphaFrameRate.frameInterval(getContext(), frameRate));
+        }
+    }
+
     /**
      * show 展示loading
      */
@@ -0,0 +1,308 @@
+package com.icourt.loading;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.LayerDrawable;
+import android.os.Build;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 库内解码位图的内存统计
+ * <p>
+ * 统计AlphaLoading/AlphaLoadingView/AlphaLoadingTextureView/AlphaStateLayout当前持有的位图(loading帧, 结果图标, empty/error插图)
+ * 和进程内共享的帧/插图缓存; 实例通过弱引用登记, 不影响回收;
+ * 同一张位图可能被多个实例共享, 每个实例的统计各自计入, {@link Report#totalBytes}去重
+ * <pre>
+ *     AlphaMemory.Report report = AlphaMemory.snapshot();
+ *     Log.d("memory", report.toString());
+ *     // 内存紧张时(例如onTrimMemory)
+ *     AlphaMemory.releaseOffscreen();
+ * </pre>
+ * @Company Beijing icourt
+ * @date createTime：2017/12/14
+ */
+public final class AlphaMemory {
+
+    public static final String TYPE_LOADING = "AlphaLoading";
+    public static final String TYPE_LOADING_VIEW = "AlphaLoadingView";
+    public static final String TYPE_TEXTURE_VIEW = "AlphaLoadingTextureView";
+    public static final String TYPE_STATE_LAYOUT = "AlphaStateLayout";
+
+    /**
+     * 登记的实例, view可能在异步inflate时创建, 访问时同步
+     */
+    private static final WeakHashMap<Object, Boolean> INSTANCES = new WeakHashMap<>();
+
+    /**
+     * 一个实例持有的位图
+     */
+    public static final class Entry {
+        /**
+         * {@link #TYPE_LOADING}, {@link #TYPE_LOADING_VIEW}, {@link #TYPE_TEXTURE_VIEW}, {@link #TYPE_STATE_LAYOUT}
+         */
+        public final String type;
+        /**
+         * 实例描述, 例如 AlphaLoadingView@1a2b3c(MainActivity)
+         */
+        public final String owner;
+        public final long bytes;
+        /**
+         * 是否正在显示, 不在显示的部分可以通过{@link #releaseOffscreen()}释放
+         */
+        public final boolean onScreen;
+
+        Entry(String type, String owner, long bytes, boolean onScreen) {
+            this.type = type;
+            this.owner = owner;
+            this.bytes = bytes;
+            this.onScreen = onScreen;
+        }
+
+        @Override
+        public String toString() {
+            return owner + ": " + bytes + (onScreen ? " bytes (on screen)" : " bytes");
+        }
+    }
+
+    public static final class Report {
+        public final List<Entry> entries;
+        public final long loadingBytes;
+        public final long loadingViewBytes;
+        public final long textureViewBytes;
+        public final long stateLayoutBytes;
+        /**
+         * 共享缓存中的位图, 包括正在被实例使用的
+         */
+        public final long cacheBytes;
+        /**
+         * 所有位图去重后的总量
+         */
+        public final long totalBytes;
+
+        Report(List<Entry> entries, long loadingBytes, long loadingViewBytes, long textureViewBytes,
+               long stateLayoutBytes, long cacheBytes, long totalBytes) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.loadingBytes = loadingBytes;
+            this.loadingViewBytes = loadingViewBytes;
+            this.textureViewBytes = textureViewBytes;
+            this.stateLayoutBytes = stateLayoutBytes;
+            this.cacheBytes = cacheBytes;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("AlphaMemory total=").append(totalBytes)
+                    .append(" loading=").append(loadingBytes)
+                    .append(" loadingView=").append(loadingViewBytes)
+                    .append(" textureView=").append(textureViewBytes)
+                    .append(" stateLayout=").append(stateLayoutBytes)
+                    .append(" cache=").append(cacheBytes);
+            for (Entry entry : entries) {
+                sb.append("\n  ").append(entry);
+            }
+            return sb.toString();
+        }
+    }
+
+    private AlphaMemory() {
+    }
+
+    static void register(@NonNull Object instance) {
+        synchronized (INSTANCES) {
+            INSTANCES.put(instance, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 统计当前持有的位图
+     *
+     * @return
+     */
+    @MainThread
+    @NonNull
+    public static Report snapshot() {
+        List<Object> instances = instances();
+        Map<Bitmap, Boolean> all = new IdentityHashMap<>();
+        Map<Bitmap, Boolean> owned = new IdentityHashMap<>();
+        List<View> views = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>(instances.size());
+        long loadingBytes = 0;
+        long loadingViewBytes = 0;
+        long textureViewBytes = 0;
+        long stateLayoutBytes = 0;
+
+        for (Object instance : instances) {
+            owned.clear();
+            if (instance instanceof AlphaLoading) {
+                AlphaLoading loading = (AlphaLoading) instance;
+                collect(loading.getIconDrawable(), owned);
+                long bytes = sum(owned, all);
+                loadingBytes += bytes;
+                entries.add(new Entry(TYPE_LOADING, describe(loading, null), bytes, loading.isShowing()));
+            } else if (instance instanceof AlphaLoadingView) {
+                AlphaLoadingView view = (AlphaLoadingView) instance;
+                collect(view.getDrawable(), owned);
+                long bytes = sum(owned, all);
+                loadingViewBytes += bytes;
+                entries.add(new Entry(TYPE_LOADING_VIEW, describe(view, view), bytes, view.isOnScreen()));
+            } else if (instance instanceof AlphaLoadingTextureView) {
+                AlphaLoadingTextureView view = (AlphaLoadingTextureView) instance;
+                LoadingFrameDecoder.Frames frames = view.getFramesInUse();
+                if (frames != null) {
+                    for (Bitmap bitmap : frames.bitmaps) {
+                        owned.put(bitmap, Boolean.TRUE);
+                    }
+                }
+                long bytes = sum(owned, all);
+                textureViewBytes += bytes;
+                entries.add(new Entry(TYPE_TEXTURE_VIEW, describe(view, view), bytes, view.isRendering()));
+            } else if (instance instanceof AlphaStateLayout) {
+                AlphaStateLayout layout = (AlphaStateLayout) instance;
+                views.clear();
+                layout.collectStateViews(views);
+                for (View view : views) {
+                    collect(view, owned);
+                }
+                long bytes = sum(owned, all);
+                stateLayoutBytes += bytes;
+                entries.add(new Entry(TYPE_STATE_LAYOUT, describe(layout, layout), bytes, layout.isShown()));
+            }
+        }
+
+        List<Bitmap> cached = new ArrayList<>();
+        LoadingFrameDecoder.collectCachedBitmaps(cached);
+        StateImageLoader.collectCachedBitmaps(cached);
+        owned.clear();
+        for (Bitmap bitmap : cached) {
+            owned.put(bitmap, Boolean.TRUE);
+        }
+        long cacheBytes = sum(owned, all);
+
+        long totalBytes = 0;
+        for (Bitmap bitmap : all.keySet()) {
+            totalBytes += byteCount(bitmap);
+        }
+        return new Report(entries, loadingBytes, loadingViewBytes, textureViewBytes, stateLayoutBytes,
+                cacheBytes, totalBytes);
+    }
+
+    /**
+     * 释放当前不在屏幕上的位图: 清空共享缓存, 没有显示的AlphaLoading的图标,
+     * 不在屏幕上的AlphaLoadingView的帧, 没有在绘制的AlphaLoadingTextureView的帧,
+     * AlphaStateLayout中隐藏的状态布局和回收池(通过getView交给调用方的除外);
+     * 再次显示时重新解码/inflate
+     *
+     * @return 释放的字节数(估算, 仍被外部引用的位图不会真正回收)
+     */
+    @MainThread
+    public static long releaseOffscreen() {
+        long before = snapshot().totalBytes;
+        LoadingFrameDecoder.evictCache();
+        StateImageLoader.evictCache();
+        for (Object instance : instances()) {
+            if (instance instanceof AlphaLoading) {
+                ((AlphaLoading) instance).releaseOffscreen();
+            } else if (instance instanceof AlphaLoadingView) {
+                ((AlphaLoadingView) instance).releaseOffscreen();
+            } else if (instance instanceof AlphaLoadingTextureView) {
+                ((AlphaLoadingTextureView) instance).releaseOffscreen();
+            } else if (instance instanceof AlphaStateLayout) {
+                ((AlphaStateLayout) instance).releaseOffscreen();
+            }
+        }
+        return Math.max(0, before - snapshot().totalBytes);
+    }
+
+    private static List<Object> instances() {
+        synchronized (INSTANCES) {
+            return new ArrayList<>(INSTANCES.keySet());
+        }
+    }
+
+    /**
+     * 把owned中的位图计入all, 返回owned的总字节数
+     */
+    private static long sum(Map<Bitmap, Boolean> owned, Map<Bitmap, Boolean> all) {
+        long bytes = 0;
+        for (Bitmap bitmap : owned.keySet()) {
+            bytes += byteCount(bitmap);
+            all.put(bitmap, Boolean.TRUE);
+        }
+        return bytes;
+    }
+
+    private static void collect(View view, Map<Bitmap, Boolean> out) {
+        collect(view.getBackground(), out);
+        if (view instanceof ImageView) {
+            collect(((ImageView) view).getDrawable(), out);
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collect(group.getChildAt(i), out);
+            }
+        }
+    }
+
+    private static void collect(@Nullable Drawable drawable, Map<Bitmap, Boolean> out) {
+        if (drawable == null) {
+            return;
+        }
+        if (drawable instanceof AlphaFrameDrawable) {
+            collect(((AlphaFrameDrawable) drawable).getFrames(), out);
+        } else if (drawable instanceof AtlasFrameDrawable) {
+            out.put(((AtlasFrameDrawable) drawable).getBitmap(), Boolean.TRUE);
+        } else if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null && !bitmap.isRecycled()) {
+                out.put(bitmap, Boolean.TRUE);
+            }
+        } else if (drawable instanceof AnimationDrawable) {
+            AnimationDrawable frames = (AnimationDrawable) drawable;
+            for (int i = 0; i < frames.getNumberOfFrames(); i++) {
+                collect(frames.getFrame(i), out);
+            }
+        } else if (drawable instanceof LayerDrawable) {
+            LayerDrawable layers = (LayerDrawable) drawable;
+            for (int i = 0; i < layers.getNumberOfLayers(); i++) {
+                collect(layers.getDrawable(i), out);
+            }
+        } else if (drawable.getCurrent() != drawable) {
+            // StateListDrawable等容器只统计当前显示的
+            collect(drawable.getCurrent(), out);
+        }
+    }
+
+    private static long byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    private static String describe(Object instance, @Nullable View view) {
+        String name = instance.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(instance));
+        if (view != null) {
+            name += "(" + view.getContext().getClass().getSimpleName() + ")";
+        }
+        return name;
+    }
+}
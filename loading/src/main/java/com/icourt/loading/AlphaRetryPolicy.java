@@ -0,0 +1,235 @@
+package com.icourt.loading;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.icourt.loading.core.RetryBackoff;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static com.icourt.loading.ViewState.VIEW_STATE_SKELETON;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description error布局的重试策略: 指数退避 + 随机抖动, 可选自动重试
+ * <p>
+ * 点击重试立即切换到loading, 退避时间到了才执行重试动作; 重试进行中(仍处于loading)的点击会被忽略;
+ * 重试动作完成后请像平常一样设置结果状态, 进入error时退避时间翻倍, 进入其他状态时重置
+ * <p>
+ * 通过{@link AlphaStateLayout#setRetryPolicy(AlphaRetryPolicy)}使用, 一个策略只能绑定一个layout
+ * @Company Beijing icourt
+ * @date createTime：2017/12/01
+ */
+public class AlphaRetryPolicy implements View.OnClickListener, AlphaStateLayout.OnStateChangeListener {
+
+    private final Runnable mRetryAction;
+    private final RetryBackoff mBackoff = new RetryBackoff();
+    private int mMaxAutoRetries;
+
+    @Nullable
+    private AlphaStateLayout mLayout;
+    /**
+     * 连续失败次数
+     */
+    private int mFailures;
+    private int mAutoRetries;
+    /**
+     * 下一次允许执行重试的时间
+     */
+    private long mNextRetryAt;
+    private boolean mInFlight;
+    private boolean mScheduled;
+
+    private final Runnable mPerformRetry = new Runnable() {
+        @Override
+        public void run() {
+            mScheduled = false;
+            mRetryAction.run();
+        }
+    };
+
+    private final Runnable mAutoRetry = new Runnable() {
+        @Override
+        public void run() {
+            mAutoRetries++;
+            retry();
+        }
+    };
+
+    /**
+     * @param retryAction 主线程执行的重试动作, 例如重新请求数据
+     */
+    public AlphaRetryPolicy(@NonNull Runnable retryAction) {
+        mRetryAction = retryAction;
+    }
+
+    /**
+     * 第一次失败后的退避时间, 默认1s
+     *
+     * @param baseDelayMillis
+     * @return
+     */
+    public AlphaRetryPolicy setBaseDelay(long baseDelayMillis) {
+        mBackoff.setBaseDelay(baseDelayMillis);
+        return this;
+    }
+
+    /**
+     * 退避时间上限, 默认30s
+     *
+     * @param maxDelayMillis
+     * @return
+     */
+    public AlphaRetryPolicy setMaxDelay(long maxDelayMillis) {
+        mBackoff.setMaxDelay(maxDelayMillis);
+        return this;
+    }
+
+    /**
+     * 每次失败退避时间的倍数, 默认2
+     *
+     * @param multiplier
+     * @return
+     */
+    public AlphaRetryPolicy setMultiplier(float multiplier) {
+        mBackoff.setMultiplier(multiplier);
+        return this;
+    }
+
+    /**
+     * 随机抖动比例[0,1], 实际退避时间在 delay*(1-jitter) 到 delay 之间, 默认0.5
+     *
+     * @param jitter
+     * @return
+     */
+    public AlphaRetryPolicy setJitter(float jitter) {
+        mBackoff.setJitter(jitter);
+        return this;
+    }
+
+    /**
+     * 连续失败时自动重试的次数, 默认0不自动重试
+     *
+     * @param maxAutoRetries
+     * @return
+     */
+    public AlphaRetryPolicy setMaxAutoRetries(int maxAutoRetries) {
+        mMaxAutoRetries = Math.max(0, maxAutoRetries);
+        return this;
+    }
+
+    /**
+     * 当前连续失败次数
+     *
+     * @return
+     */
+    public int getFailureCount() {
+        return mFailures;
+    }
+
+    /**
+     * 是否有重试正在进行
+     *
+     * @return
+     */
+    public boolean isRetrying() {
+        return mInFlight;
+    }
+
+    void attach(@NonNull AlphaStateLayout layout) {
+        if (mLayout != null && mLayout != layout) {
+            throw new IllegalStateException("AlphaRetryPolicy is already attached to another AlphaStateLayout");
+        }
+        mLayout = layout;
+        layout.addStateChangeListener(this);
+    }
+
+    void detach() {
+        if (mLayout != null) {
+            mLayout.removeCallbacks(mPerformRetry);
+            mLayout.removeCallbacks(mAutoRetry);
+            mLayout.removeStateChangeListener(this);
+            mLayout = null;
+        }
+        mScheduled = false;
+        mInFlight = false;
+    }
+
+    /**
+     * layout离开窗口, 用户已经看不到error布局, 取消自动重试; 用户点击触发的重试照常执行
+     */
+    void onDetachedFromWindow() {
+        if (mLayout != null) {
+            mLayout.removeCallbacks(mAutoRetry);
+        }
+    }
+
+    @Override
+    public void onClick(View v) {
+        retry();
+    }
+
+    /**
+     * 切换到loading, 退避时间到了之后执行重试动作; 已有重试进行中时忽略
+     */
+    public void retry() {
+        AlphaStateLayout layout = mLayout;
+        if (layout == null || mInFlight) {
+            return;
+        }
+        layout.removeCallbacks(mAutoRetry);
+        mInFlight = true;
+        layout.setViewState(VIEW_STATE_LOADING);
+        long wait = mNextRetryAt - SystemClock.uptimeMillis();
+        if (wait > 0) {
+            mScheduled = true;
+            layout.postDelayed(mPerformRetry, wait);
+        } else {
+            mRetryAction.run();
+        }
+    }
+
+    @Override
+    public void onStateChanged(ViewState previous, ViewState current, long dwellMillis) {
+        onResult(current);
+    }
+
+    /**
+     * 设置的结果状态与当前显示的相同, 例如loading延迟显示期间就返回了error, loading没有显示过;
+     * 这时没有状态切换的回调, 需要在这里结束进行中的重试
+     */
+    void onStateUnchanged(ViewState state) {
+        if (mInFlight) {
+            onResult(state);
+        }
+    }
+
+    private void onResult(ViewState current) {
+        if (current == VIEW_STATE_LOADING || current == VIEW_STATE_SKELETON) {
+            return;
+        }
+        AlphaStateLayout layout = mLayout;
+        if (mScheduled && layout != null) {
+            // 等待期间被外部切走, 放弃这次重试
+            layout.removeCallbacks(mPerformRetry);
+            mScheduled = false;
+        }
+        mInFlight = false;
+        if (current != VIEW_STATE_ERROR) {
+            mFailures = 0;
+            mAutoRetries = 0;
+            mNextRetryAt = 0;
+            return;
+        }
+        mFailures++;
+        long delay = mBackoff.delayFor(mFailures);
+        mNextRetryAt = SystemClock.uptimeMillis() + delay;
+        if (layout != null && mAutoRetries < mMaxAutoRetries) {
+            layout.removeCallbacks(mAutoRetry);
+            layout.postDelayed(mAutoRetry, delay);
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package com.icourt.loading;
+
+import android.support.annotation.DrawableRes;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_CUSTOM;
+import static com.icourt.loading.ViewState.VIEW_STATE_EMPTY;
+import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static com.icourt.loading.ViewState.VIEW_STATE_SKELETON;
+import static com.icourt.loading.ViewState.VIEW_STATE_UNKNOWN;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description RecyclerView的多状态adapter, 包装原有adapter, loading/empty/error作为单独的item展示
+ * <p>
+ * 列表不再需要外层包一个AlphaStateLayout, 状态切换只是adapter的notify;
+ * 状态item的viewType就是对应的布局资源id, 请避免与被包装adapter的viewType冲突
+ * @Company Beijing icourt
+ * @date createTime：2017/11/28
+ */
+public class AlphaStateAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private final RecyclerView.Adapter<VH> mAdapter;
+
+    private ViewState mViewState = VIEW_STATE_CONTENT;
+    private int mCustomState = AlphaStateLayout.NO_STATE;
+    private boolean mLoadingFooter;
+
+    @LayoutRes
+    private int mLoadingLayout = R.layout.alpha_loading_view;
+    @LayoutRes
+    private int mEmptyLayout = R.layout.alpha_empty_view;
+    @LayoutRes
+    private int mErrorLayout = R.layout.alpha_error_view;
+    @LayoutRes
+    private int mFooterLayout = R.layout.alpha_loading_footer_view;
+    private final SparseIntArray mCustomLayouts = new SparseIntArray();
+
+    @Nullable
+    private CharSequence mEmptyText;
+    @DrawableRes
+    private int mEmptyImageRes;
+    @Nullable
+    private CharSequence mErrorText;
+    @DrawableRes
+    private int mErrorImageRes;
+    @Nullable
+    private View.OnClickListener mRetryListener;
+
+    private final ContentObserver mContentObserver = new ContentObserver();
+    /**
+     * 同一个adapter可能同时设置给多个RecyclerView, 全部移除后才取消监听
+     */
+    private int mAttachedCount;
+
+    /**
+     * 只在attach到RecyclerView期间监听被包装adapter的数据变化, 包装adapter被丢弃后不会被原adapter持有
+     *
+     * @param adapter
+     */
+    public AlphaStateAdapter(@NonNull RecyclerView.Adapter<VH> adapter) {
+        mAdapter = adapter;
+        super.setHasStableIds(adapter.hasStableIds());
+    }
+
+    @NonNull
+    public RecyclerView.Adapter<VH> getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    public ViewState getViewState() {
+        return mViewState;
+    }
+
+    /**
+     * 切换状态, 非内容状态时列表只有一个状态item
+     *
+     * @param state
+     */
+    public void setViewState(ViewState state) {
+        applyState(state, mCustomState);
+    }
+
+    /**
+     * 展示loading
+     */
+    public void showLoadingView() {
+        setViewState(VIEW_STATE_LOADING);
+    }
+
+    /**
+     * 切换到自定义状态
+     *
+     * @param stateId 通过{@link #registerState(int, int)}注册的状态
+     */
+    public void setCustomState(int stateId) {
+        applyState(VIEW_STATE_CUSTOM, stateId);
+    }
+
+    /**
+     * 注册自定义状态的布局
+     *
+     * @param stateId
+     * @param layoutRes
+     */
+    public void registerState(int stateId, @LayoutRes int layoutRes) {
+        mCustomLayouts.put(stateId, layoutRes);
+        if (mViewState == VIEW_STATE_CUSTOM && mCustomState == stateId) {
+            notifyItemChanged(0);
+        }
+    }
+
+    private void applyState(ViewState state, int customState) {
+        int oldLayout = getStateLayout(mViewState, mCustomState);
+        int oldCount = getItemCount();
+        mViewState = state;
+        mCustomState = customState;
+        int newLayout = getStateLayout(mViewState, mCustomState);
+        int newCount = getItemCount();
+
+        if (oldLayout == newLayout) {
+            if (oldLayout == -1 && oldCount != newCount) {
+                notifyDataSetChanged();
+            }
+            return;
+        }
+        if (oldLayout != -1 && newLayout != -1) {
+            notifyItemChanged(0);
+        } else {
+            notifyItemRangeRemoved(0, oldCount);
+            notifyItemRangeInserted(0, newCount);
+        }
+    }
+
+    /**
+     * 分页加载时在列表底部显示loading, 只在内容状态下生效
+     *
+     * @param visible
+     */
+    public void setLoadingFooterVisible(boolean visible) {
+        if (mLoadingFooter == visible) {
+            return;
+        }
+        mLoadingFooter = visible;
+        if (isShowingContent()) {
+            int position = mAdapter.getItemCount();
+            if (visible) {
+                notifyItemInserted(position);
+            } else {
+                notifyItemRemoved(position);
+            }
+        }
+    }
+
+    public boolean isLoadingFooterVisible() {
+        return mLoadingFooter;
+    }
+
+    public AlphaStateAdapter<VH> setLoadingLayout(@LayoutRes int layoutRes) {
+        mLoadingLayout = layoutRes;
+        return this;
+    }
+
+    public AlphaStateAdapter<VH> setEmptyLayout(@LayoutRes int layoutRes) {
+        mEmptyLayout = layoutRes;
+        return this;
+    }
+
+    public AlphaStateAdapter<VH> setErrorLayout(@LayoutRes int layoutRes) {
+        mErrorLayout = layoutRes;
+        return this;
+    }
+
+    public AlphaStateAdapter<VH> setLoadingFooterLayout(@LayoutRes int layoutRes) {
+        mFooterLayout = layoutRes;
+        return this;
+    }
+
+    /**
+     * R.id.alpha_empty_view_tv
+     *
+     * @param charSequence
+     * @return
+     */
+    public AlphaStateAdapter<VH> setEmptyText(CharSequence charSequence) {
+        mEmptyText = charSequence;
+        notifyStateItemChanged(VIEW_STATE_EMPTY);
+        return this;
+    }
+
+    /**
+     * R.id.alpha_empty_view_iv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateAdapter<VH> setEmptyImage(@DrawableRes int id) {
+        mEmptyImageRes = id;
+        notifyStateItemChanged(VIEW_STATE_EMPTY);
+        return this;
+    }
+
+    /**
+     * R.id.alpha_error_view_tv
+     *
+     * @param charSequence
+     * @return
+     */
+    public AlphaStateAdapter<VH> setErrorText(CharSequence charSequence) {
+        mErrorText = charSequence;
+        notifyStateItemChanged(VIEW_STATE_ERROR);
+        return this;
+    }
+
+    /**
+     * R.id.alpha_error_view_iv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateAdapter<VH> setErrorImage(@DrawableRes int id) {
+        mErrorImageRes = id;
+        notifyStateItemChanged(VIEW_STATE_ERROR);
+        return this;
+    }
+
+    /**
+     * R.id.alpha_error_view_retry_tv
+     *
+     * @param l
+     * @return
+     */
+    public AlphaStateAdapter<VH> setErrorRetryListener(@Nullable View.OnClickListener l) {
+        mRetryListener = l;
+        notifyStateItemChanged(VIEW_STATE_ERROR);
+        return this;
+    }
+
+    private void notifyStateItemChanged(ViewState state) {
+        if (mViewState == state) {
+            notifyItemChanged(0);
+        }
+    }
+
+    /**
+     * 状态对应的布局
+     *
+     * @return 内容状态返回-1
+     */
+    private int getStateLayout(ViewState state, int customState) {
+        switch (state) {
+            case VIEW_STATE_LOADING:
+            case VIEW_STATE_SKELETON:
+                return mLoadingLayout;
+            case VIEW_STATE_EMPTY:
+                return mEmptyLayout;
+            case VIEW_STATE_ERROR:
+                return mErrorLayout;
+            case VIEW_STATE_CUSTOM:
+                return mCustomLayouts.get(customState, -1);
+            case VIEW_STATE_CONTENT:
+            case VIEW_STATE_UNKNOWN:
+            default:
+                return -1;
+        }
+    }
+
+    private boolean isShowingContent() {
+        return getStateLayout(mViewState, mCustomState) == -1;
+    }
+
+    private boolean isFooterPosition(int position) {
+        return mLoadingFooter && position == mAdapter.getItemCount();
+    }
+
+    @Override
+    public int getItemCount() {
+        if (!isShowingContent()) {
+            return 1;
+        }
+        return mAdapter.getItemCount() + (mLoadingFooter ? 1 : 0);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (!isShowingContent()) {
+            return getStateLayout(mViewState, mCustomState);
+        }
+        if (isFooterPosition(position)) {
+            return mFooterLayout;
+        }
+        return mAdapter.getItemViewType(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (!isShowingContent() || isFooterPosition(position)) {
+            return RecyclerView.NO_ID;
+        }
+        return mAdapter.getItemId(position);
+    }
+
+    private boolean isStateViewType(int viewType) {
+        return viewType == mLoadingLayout || viewType == mEmptyLayout || viewType == mErrorLayout
+                || viewType == mFooterLayout || mCustomLayouts.indexOfValue(viewType) >= 0;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (isStateViewType(viewType)) {
+            View itemView = LayoutInflater.from(parent.getContext()).inflate(viewType, parent, false);
+            setFullSpan(itemView);
+            return new StateHolder(itemView);
+        }
+        return mAdapter.onCreateViewHolder(parent, viewType);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        onBindViewHolder(holder, position, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (holder instanceof StateHolder) {
+            // 切换LayoutManager后复用的holder也要重新设置
+            setFullSpan(holder.itemView);
+            bindStateHolder((StateHolder) holder);
+            return;
+        }
+        if (payloads == null) {
+            mAdapter.onBindViewHolder((VH) holder, position);
+        } else {
+            mAdapter.onBindViewHolder((VH) holder, position, payloads);
+        }
+    }
+
+    /**
+     * 瀑布流中状态item占满一行, 在布局之前设置, 避免先按单列布局再跳到整行
+     */
+    private static void setFullSpan(View itemView) {
+        ViewGroup.LayoutParams lp = itemView.getLayoutParams();
+        if (lp instanceof StaggeredGridLayoutManager.LayoutParams) {
+            ((StaggeredGridLayoutManager.LayoutParams) lp).setFullSpan(true);
+        }
+    }
+
+    private void bindStateHolder(StateHolder holder) {
+        StateViewHolder views = StateViewHolder.of(holder.itemView);
+        views.reset();
+        if (mViewState == VIEW_STATE_EMPTY) {
+            if (mEmptyText != null) {
+                views.setEmptyText(mEmptyText);
+            }
+            if (mEmptyImageRes != 0) {
+                views.setEmptyImage(mEmptyImageRes);
+            }
+        } else if (mViewState == VIEW_STATE_ERROR) {
+            if (mErrorText != null) {
+                views.setErrorText(mErrorText);
+            }
+            if (mErrorImageRes != 0) {
+                views.setErrorImage(mErrorImageRes);
+            }
+            views.setRetryListener(mRetryListener);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof StateHolder)) {
+            mAdapter.onViewRecycled((VH) holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        if (holder instanceof StateHolder) {
+            return super.onFailedToRecycleView(holder);
+        }
+        return mAdapter.onFailedToRecycleView((VH) holder);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof StateHolder)) {
+            mAdapter.onViewAttachedToWindow((VH) holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof StateHolder)) {
+            mAdapter.onViewDetachedFromWindow((VH) holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        if (mAttachedCount++ == 0) {
+            mAdapter.registerAdapterDataObserver(mContentObserver);
+        }
+        mAdapter.onAttachedToRecyclerView(recyclerView);
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof GridLayoutManager) {
+            GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
+            GridLayoutManager.SpanSizeLookup lookup = gridLayoutManager.getSpanSizeLookup();
+            // 重复attach时不再包装, 避免lookup层层嵌套
+            if (!isOwnLookup(lookup)) {
+                gridLayoutManager.setSpanSizeLookup(new StateSpanSizeLookup(gridLayoutManager, lookup));
+            }
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onDetachedFromRecyclerView(recyclerView);
+        if (--mAttachedCount == 0) {
+            mAdapter.unregisterAdapterDataObserver(mContentObserver);
+        }
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof GridLayoutManager) {
+            GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
+            GridLayoutManager.SpanSizeLookup lookup = gridLayoutManager.getSpanSizeLookup();
+            if (isOwnLookup(lookup)) {
+                gridLayoutManager.setSpanSizeLookup(((StateSpanSizeLookup) lookup).mOriginal);
+            }
+        }
+    }
+
+    private boolean isOwnLookup(GridLayoutManager.SpanSizeLookup lookup) {
+        return lookup instanceof StateSpanSizeLookup && ((StateSpanSizeLookup) lookup).getAdapter() == this;
+    }
+
+    /**
+     * 状态布局占满一行, 其余位置交给原来的lookup; detach时还原原来的lookup
+     */
+    private class StateSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+        private final GridLayoutManager mLayoutManager;
+        private final GridLayoutManager.SpanSizeLookup mOriginal;
+
+        StateSpanSizeLookup(GridLayoutManager layoutManager, GridLayoutManager.SpanSizeLookup original) {
+            mLayoutManager = layoutManager;
+            mOriginal = original;
+        }
+
+        AlphaStateAdapter<?> getAdapter() {
+            return AlphaStateAdapter.this;
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            if (isStateViewType(getItemViewType(position))) {
+                return mLayoutManager.getSpanCount();
+            }
+            return mOriginal.getSpanSize(position);
+        }
+    }
+
+    static class StateHolder extends RecyclerView.ViewHolder {
+        StateHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    /**
+     * 转发被包装adapter的数据变化, 非内容状态时列表只有状态item, 不需要转发
+     */
+    private class ContentObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            if (isShowingContent()) {
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (isShowingContent()) {
+                notifyItemRangeChanged(positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            if (isShowingContent()) {
+                notifyItemRangeChanged(positionStart, itemCount, payload);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (isShowingContent()) {
+                notifyItemRangeInserted(positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (isShowingContent()) {
+                notifyItemRangeRemoved(positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            // RecyclerView只会分发单个item的移动
+            if (isShowingContent()) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.icourt.loading;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.IntDef;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Constructor;
+
+import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_EMPTY;
+import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
+import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 不增加布局层级, 直接给已有的view加上loading/empty/error状态
+ * <p>
+ * {@link #MODE_SIBLING}: 状态布局作为目标view的兄弟节点插入, 使用相同的LayoutParams, 显示状态时目标view为GONE;
+ * RelativeLayout/ConstraintLayout中其他view依赖目标view的id定位时, 请使用overlay模式
+ * <p>
+ * {@link #MODE_OVERLAY}: 状态布局绘制在父布局的overlay中, 覆盖目标view的区域(API 18+),
+ * overlay中的view不响应点击, 适合loading这类不需要交互的状态; 低版本自动退回兄弟节点模式;
+ * overlay不会测量布局其中的view, 由本类在目标view布局变化和状态布局请求重新布局时处理
+ * @Company Beijing icourt
+ * @date createTime：2017/11/30
+ */
+public class AlphaStateAttacher implements View.OnLayoutChangeListener, ViewTreeObserver.OnPreDrawListener,
+        View.OnAttachStateChangeListener {
+
+    public static final int MODE_SIBLING = 0;
+    public static final int MODE_OVERLAY = 1;
+
+    @IntDef({MODE_SIBLING, MODE_OVERLAY})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Mode {
+    }
+
+    private final View mTarget;
+    private final ViewGroup mParent;
+    @Mode
+    private final int mMode;
+    private final LayoutInflater mInflater;
+    @Nullable
+    private ViewTreeObserver mObserver;
+
+    @LayoutRes
+    private int mLoadingLayout = R.layout.alpha_loading_view;
+    @LayoutRes
+    private int mEmptyLayout = R.layout.alpha_empty_view;
+    @LayoutRes
+    private int mErrorLayout = R.layout.alpha_error_view;
+    @Nullable
+    private View mLoadingView;
+    @Nullable
+    private View mEmptyView;
+    @Nullable
+    private View mErrorView;
+    @Nullable
+    private View mActiveView;
+
+    private ViewState mViewState = VIEW_STATE_CONTENT;
+    private boolean mContentLoadingCoexist;
+
+    @Nullable
+    private CharSequence mEmptyText;
+    @DrawableRes
+    private int mEmptyImageRes;
+    @Nullable
+    private CharSequence mErrorText;
+    @DrawableRes
+    private int mErrorImageRes;
+    @Nullable
+    private View.OnClickListener mRetryListener;
+
+    /**
+     * 以兄弟节点的方式给目标view加上状态
+     *
+     * @param target 必须已经有父布局
+     * @return
+     */
+    public static AlphaStateAttacher attach(@NonNull View target) {
+        return attach(target, MODE_SIBLING);
+    }
+
+    public static AlphaStateAttacher attach(@NonNull View target, @Mode int mode) {
+        ViewParent parent = target.getParent();
+        if (!(parent instanceof ViewGroup)) {
+            throw new IllegalArgumentException("target must have a ViewGroup parent");
+        }
+        if (mode == MODE_OVERLAY && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            mode = MODE_SIBLING;
+        }
+        return new AlphaStateAttacher(target, (ViewGroup) parent, mode);
+    }
+
+    private AlphaStateAttacher(View target, ViewGroup parent, @Mode int mode) {
+        mTarget = target;
+        mParent = parent;
+        mMode = mode;
+        mInflater = LayoutInflater.from(target.getContext());
+        if (mode == MODE_OVERLAY) {
+            // 布局监听只在目标view attach期间注册, 避免detach后仍被window的ViewTreeObserver持有
+            target.addOnAttachStateChangeListener(this);
+            if (ViewCompat.isAttachedToWindow(target)) {
+                addOverlayListeners();
+            }
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        addOverlayListeners();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        removeOverlayListeners();
+    }
+
+    private void addOverlayListeners() {
+        if (mObserver != null) {
+            return;
+        }
+        mTarget.addOnLayoutChangeListener(this);
+        mObserver = mTarget.getViewTreeObserver();
+        mObserver.addOnPreDrawListener(this);
+    }
+
+    private void removeOverlayListeners() {
+        if (mObserver == null) {
+            return;
+        }
+        mTarget.removeOnLayoutChangeListener(this);
+        // 添加时未attach的observer在attach后被合并, 从当前的observer移除
+        ViewTreeObserver observer = mObserver.isAlive() ? mObserver : mTarget.getViewTreeObserver();
+        observer.removeOnPreDrawListener(this);
+        mObserver = null;
+    }
+
+    public AlphaStateAttacher setLoadingView(@LayoutRes int layoutRes) {
+        mLoadingLayout = layoutRes;
+        return this;
+    }
+
+    public AlphaStateAttacher setEmptyView(@LayoutRes int layoutRes) {
+        mEmptyLayout = layoutRes;
+        return this;
+    }
+
+    public AlphaStateAttacher setErrorView(@LayoutRes int layoutRes) {
+        mErrorLayout = layoutRes;
+        return this;
+    }
+
+    /**
+     * 设置内容与loading共存, loading时不隐藏目标view
+     *
+     * @param coexist
+     * @return
+     */
+    public AlphaStateAttacher setContentLoadingCoexist(boolean coexist) {
+        mContentLoadingCoexist = coexist;
+        return this;
+    }
+
+    public AlphaStateAttacher setEmptyText(CharSequence charSequence) {
+        mEmptyText = charSequence;
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyText(charSequence);
+        }
+        return this;
+    }
+
+    public AlphaStateAttacher setEmptyImage(@DrawableRes int id) {
+        mEmptyImageRes = id;
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyImage(id);
+        }
+        return this;
+    }
+
+    public AlphaStateAttacher setErrorText(CharSequence charSequence) {
+        mErrorText = charSequence;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setErrorText(charSequence);
+        }
+        return this;
+    }
+
+    public AlphaStateAttacher setErrorImage(@DrawableRes int id) {
+        mErrorImageRes = id;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setErrorImage(id);
+        }
+        return this;
+    }
+
+    /**
+     * overlay模式下error布局不响应点击, 重试请使用兄弟节点模式
+     *
+     * @param l
+     * @return
+     */
+    public AlphaStateAttacher setErrorRetryListener(@Nullable View.OnClickListener l) {
+        mRetryListener = l;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setRetryListener(l);
+        }
+        return this;
+    }
+
+    public ViewState getViewState() {
+        return mViewState;
+    }
+
+    /**
+     * 获取状态对应的布局, 在第一次切换到该状态时创建
+     *
+     * @param state
+     * @return 还没有创建或者内容状态时返回null
+     */
+    @Nullable
+    public View getView(ViewState state) {
+        switch (state) {
+            case VIEW_STATE_LOADING:
+                return mLoadingView;
+            case VIEW_STATE_EMPTY:
+                return mEmptyView;
+            case VIEW_STATE_ERROR:
+                return mErrorView;
+            default:
+                return null;
+        }
+    }
+
+    public void showLoadingView() {
+        setViewState(VIEW_STATE_LOADING);
+    }
+
+    /**
+     * 切换状态, 只隐藏离开的布局并显示进入的布局
+     *
+     * @param state
+     */
+    public void setViewState(ViewState state) {
+        if (state == mViewState) {
+            return;
+        }
+        mViewState = state;
+        View incoming = ensureStateView(state);
+        if (mActiveView != null && mActiveView != incoming) {
+            mActiveView.setVisibility(View.GONE);
+        }
+        mActiveView = incoming;
+        if (incoming != null) {
+            incoming.setVisibility(View.VISIBLE);
+        }
+
+        boolean contentVisible = incoming == null
+                || (state == VIEW_STATE_LOADING && mContentLoadingCoexist);
+        // overlay模式下目标view需要保留位置, 用INVISIBLE
+        int hidden = mMode == MODE_OVERLAY ? View.INVISIBLE : View.GONE;
+        mTarget.setVisibility(contentVisible ? View.VISIBLE : hidden);
+    }
+
+    @Nullable
+    private View ensureStateView(ViewState state) {
+        switch (state) {
+            case VIEW_STATE_LOADING:
+                if (mLoadingView == null) {
+                    mLoadingView = createStateView(mLoadingLayout);
+                }
+                return mLoadingView;
+            case VIEW_STATE_EMPTY:
+                if (mEmptyView == null) {
+                    mEmptyView = createStateView(mEmptyLayout);
+                    StateViewHolder holder = StateViewHolder.of(mEmptyView);
+                    if (mEmptyText != null) {
+                        holder.setEmptyText(mEmptyText);
+                    }
+                    if (mEmptyImageRes != 0) {
+                        holder.setEmptyImage(mEmptyImageRes);
+                    }
+                }
+                return mEmptyView;
+            case VIEW_STATE_ERROR:
+                if (mErrorView == null) {
+                    mErrorView = createStateView(mErrorLayout);
+                    StateViewHolder holder = StateViewHolder.of(mErrorView);
+                    if (mErrorText != null) {
+                        holder.setErrorText(mErrorText);
+                    }
+                    if (mErrorImageRes != 0) {
+                        holder.setErrorImage(mErrorImageRes);
+                    }
+                    holder.setRetryListener(mRetryListener);
+                }
+                return mErrorView;
+            default:
+                return null;
+        }
+    }
+
+    private View createStateView(@LayoutRes int layoutRes) {
+        View view = mInflater.inflate(layoutRes, mParent, false);
+        view.setVisibility(View.GONE);
+        if (mMode == MODE_OVERLAY) {
+            addToOverlay(view);
+        } else {
+            int index = mParent.indexOfChild(mTarget);
+            mParent.addView(view, index + 1, copyLayoutParams(mTarget.getLayoutParams()));
+        }
+        return view;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void addToOverlay(View view) {
+        // overlay中的view没有父布局链, isShown()永远为false, 标记后由ViewportVisibility按父布局判断
+        ViewportVisibility.setOverlayHost(view, mParent);
+        mParent.getOverlay().add(view);
+        layoutOverlayView(view);
+    }
+
+    private void layoutOverlayView(View view) {
+        int width = mTarget.getWidth();
+        int height = mTarget.getHeight();
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(mTarget.getLeft(), mTarget.getTop(), mTarget.getLeft() + width, mTarget.getTop() + height);
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        if (mLoadingView != null) {
+            layoutOverlayView(mLoadingView);
+        }
+        if (mEmptyView != null) {
+            layoutOverlayView(mEmptyView);
+        }
+        if (mErrorView != null) {
+            layoutOverlayView(mErrorView);
+        }
+    }
+
+    /**
+     * overlay不处理requestLayout, 文字/图片变化后在绘制前重新布局
+     */
+    @Override
+    public boolean onPreDraw() {
+        relayoutIfRequested(mLoadingView);
+        relayoutIfRequested(mEmptyView);
+        relayoutIfRequested(mErrorView);
+        return true;
+    }
+
+    private void relayoutIfRequested(@Nullable View view) {
+        if (view != null && view.getVisibility() != View.GONE && view.isLayoutRequested()) {
+            layoutOverlayView(view);
+        }
+    }
+
+    /**
+     * 复制目标view的LayoutParams, 优先使用同类型的拷贝构造, 保留weight/gravity/rules等属性
+     *
+     * @param source
+     * @return
+     */
+    private static ViewGroup.LayoutParams copyLayoutParams(ViewGroup.LayoutParams source) {
+        try {
+            Constructor<? extends ViewGroup.LayoutParams> constructor = source.getClass().getConstructor(source.getClass());
+            return constructor.newInstance(source);
+        } catch (Exception ignored) {
+        }
+        try {
+            Constructor<? extends ViewGroup.LayoutParams> constructor = source.getClass().getConstructor(ViewGroup.MarginLayoutParams.class);
+            if (source instanceof ViewGroup.MarginLayoutParams) {
+                return constructor.newInstance(source);
+            }
+        } catch (Exception ignored) {
+        }
+        try {
+            Constructor<? extends ViewGroup.LayoutParams> constructor = source.getClass().getConstructor(ViewGroup.LayoutParams.class);
+            return constructor.newInstance(source);
+        } catch (Exception ignored) {
+        }
+        return new ViewGroup.LayoutParams(source);
+    }
+
+    /**
+     * 移除所有状态布局并恢复目标view
+     */
+    public void detach() {
+        removeStateView(mLoadingView);
+        removeStateView(mEmptyView);
+        removeStateView(mErrorView);
+        mLoadingView = null;
+        mEmptyView = null;
+        mErrorView = null;
+        mActiveView = null;
+        mViewState = VIEW_STATE_CONTENT;
+        mTarget.setVisibility(View.VISIBLE);
+        mTarget.removeOnAttachStateChangeListener(this);
+        removeOverlayListeners();
+    }
+
+    private void removeStateView(@Nullable View view) {
+        if (view == null) {
+            return;
+        }
+        if (mMode == MODE_OVERLAY) {
+            removeFromOverlay(view);
+        } else {
+            mParent.removeView(view);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void removeFromOverlay(View view) {
+        mParent.getOverlay().remove(view);
+        ViewportVisibility.setOverlayHost(view, null);
+    }
+}
@@ -0,0 +1,186 @@
+package com.icourt.loading;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import com.icourt.loading.core.StateCoalescer;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 把任意线程产生的状态绑定到AlphaStateLayout
+ * <p>
+ * {@link #emit(ViewState, CharSequence, CharSequence)}可以在任意线程调用, 只保存最新的值;
+ * 每一帧最多在主线程应用一次, 同一帧内的loading/content来回切换只会更新一次UI;
+ * layout离开窗口时自动取消订阅{@link StateSource}, 重新attach时再订阅
+ * @Company Beijing icourt
+ * @date createTime：2017/12/01
+ */
+public final class AlphaStateBinding implements View.OnAttachStateChangeListener {
+
+    /**
+     * 状态来源, 例如repository/数据流的适配
+     */
+    public interface StateSource {
+        /**
+         * 开始向binding发送状态
+         *
+         * @param binding
+         */
+        void subscribe(@NonNull AlphaStateBinding binding);
+
+        /**
+         * 停止发送
+         *
+         * @param binding
+         */
+        void unsubscribe(@NonNull AlphaStateBinding binding);
+    }
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final AlphaStateLayout mLayout;
+    @Nullable
+    private final StateSource mSource;
+    private final StateCoalescer mCoalescer = new StateCoalescer();
+    /**
+     * 只在主线程使用
+     */
+    private final StateCoalescer.Update mUpdate = new StateCoalescer.Update();
+
+    private boolean mSubscribed;
+    private boolean mUnbound;
+
+    /**
+     * 主线程: 等到下一帧再应用
+     */
+    private final Runnable mScheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(mLayout, mApplyFrame);
+        }
+    };
+
+    private final Runnable mApplyFrame = new Runnable() {
+        @Override
+        public void run() {
+            applyPending();
+        }
+    };
+
+    /**
+     * 绑定layout, 由调用者通过{@link #emit}推送状态
+     *
+     * @param layout
+     * @return
+     */
+    public static AlphaStateBinding bind(@NonNull AlphaStateLayout layout) {
+        return bind(layout, null);
+    }
+
+    /**
+     * 绑定layout和状态来源, layout attach期间保持订阅
+     *
+     * @param layout
+     * @param source
+     * @return
+     */
+    public static AlphaStateBinding bind(@NonNull AlphaStateLayout layout, @Nullable StateSource source) {
+        AlphaStateBinding binding = new AlphaStateBinding(layout, source);
+        layout.addOnAttachStateChangeListener(binding);
+        if (ViewCompat.isAttachedToWindow(layout)) {
+            binding.subscribe();
+        }
+        return binding;
+    }
+
+    private AlphaStateBinding(AlphaStateLayout layout, @Nullable StateSource source) {
+        mLayout = layout;
+        mSource = source;
+    }
+
+    public void emit(@NonNull ViewState state) {
+        emit(state, null, null);
+    }
+
+    /**
+     * 推送状态, 线程安全
+     *
+     * @param state
+     * @param errorText error状态的提示, null保持不变
+     * @param emptyText empty状态的提示, null保持不变
+     */
+    public void emit(@NonNull ViewState state, @Nullable CharSequence errorText, @Nullable CharSequence emptyText) {
+        if (!mCoalescer.offer(state, errorText, emptyText)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mScheduleFrame.run();
+        } else {
+            MAIN_HANDLER.post(mScheduleFrame);
+        }
+    }
+
+    private void applyPending() {
+        StateCoalescer.Update update = mUpdate;
+        if (!mCoalescer.poll(update)) {
+            return;
+        }
+        CharSequence errorText = update.errorText;
+        CharSequence emptyText = update.emptyText;
+        ViewState state = update.state;
+        update.errorText = null;
+        update.emptyText = null;
+        update.state = null;
+        if (errorText != null) {
+            mLayout.setErrorText(errorText);
+        }
+        if (emptyText != null) {
+            mLayout.setEmptyText(emptyText);
+        }
+        mLayout.setViewState(state);
+    }
+
+    /**
+     * 解除绑定, 之后的emit会被忽略; 主线程调用
+     */
+    public void unbind() {
+        mUnbound = true;
+        mCoalescer.close();
+        MAIN_HANDLER.removeCallbacks(mScheduleFrame);
+        mLayout.removeCallbacks(mApplyFrame);
+        mLayout.removeOnAttachStateChangeListener(this);
+        unsubscribe();
+    }
+
+    private void subscribe() {
+        if (!mSubscribed && !mUnbound && mSource != null) {
+            mSubscribed = true;
+            mSource.subscribe(this);
+        }
+    }
+
+    private void unsubscribe() {
+        if (mSubscribed && mSource != null) {
+            mSubscribed = false;
+            mSource.unsubscribe(this);
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        subscribe();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        unsubscribe();
+        // 离开窗口后不再有帧回调, 已经排队的最新值直接应用
+        mLayout.removeCallbacks(mApplyFrame);
+        applyPending();
+    }
+}
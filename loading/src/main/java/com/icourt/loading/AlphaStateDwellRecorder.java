@@ -0,0 +1,114 @@
+package com.icourt.loading;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 统计一个页面在各个状态停留的总时长和进入次数, 用于上报loading/error的停留时间
+ * <p>
+ * 按ViewState预先分配数组, 状态切换时不分配对象; 自定义状态统一计入{@link ViewState#VIEW_STATE_CUSTOM}
+ * @Company Beijing icourt
+ * @date createTime：2017/11/29
+ */
+public class AlphaStateDwellRecorder implements AlphaStateLayout.OnStateChangeListener, View.OnAttachStateChangeListener {
+
+    private static final ViewState[] STATES = ViewState.values();
+
+    private final String mScreenName;
+    private final long[] mDwellMillis = new long[STATES.length];
+    private final int[] mEnterCounts = new int[STATES.length];
+    /**
+     * 当前状态在detach时已经计入的时间, 状态切换时扣除, 避免重复计算
+     */
+    private long mFlushedMillis;
+
+    public AlphaStateDwellRecorder(@NonNull String screenName) {
+        mScreenName = screenName;
+    }
+
+    /**
+     * 开始统计, 离开页面(detach)时会把当前状态已停留的时间计入
+     *
+     * @param layout
+     * @return
+     */
+    public AlphaStateDwellRecorder attach(@NonNull AlphaStateLayout layout) {
+        layout.addStateChangeListener(this);
+        layout.addOnAttachStateChangeListener(this);
+        return this;
+    }
+
+    public void detach(@NonNull AlphaStateLayout layout) {
+        layout.removeStateChangeListener(this);
+        layout.removeOnAttachStateChangeListener(this);
+    }
+
+    @Override
+    public void onStateChanged(ViewState previous, ViewState current, long dwellMillis) {
+        mDwellMillis[previous.ordinal()] += Math.max(0, dwellMillis - mFlushedMillis);
+        mFlushedMillis = 0;
+        mEnterCounts[current.ordinal()]++;
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        // detach时停留计时已经暂停, 再次attach后继续累计
+        AlphaStateLayout layout = (AlphaStateLayout) v;
+        long duration = layout.getCurrentStateDuration();
+        mDwellMillis[layout.getDisplayedState().ordinal()] += Math.max(0, duration - mFlushedMillis);
+        mFlushedMillis = duration;
+    }
+
+    @NonNull
+    public String getScreenName() {
+        return mScreenName;
+    }
+
+    /**
+     * 在该状态停留的总时长(ms)
+     *
+     * @param state
+     * @return
+     */
+    public long getDwellTime(ViewState state) {
+        return mDwellMillis[state.ordinal()];
+    }
+
+    /**
+     * 进入该状态的次数
+     *
+     * @param state
+     * @return
+     */
+    public int getEnterCount(ViewState state) {
+        return mEnterCounts[state.ordinal()];
+    }
+
+    public void reset() {
+        for (int i = 0; i < STATES.length; i++) {
+            mDwellMillis[i] = 0;
+            mEnterCounts[i] = 0;
+        }
+        mFlushedMillis = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(mScreenName).append('{');
+        for (int i = 0; i < STATES.length; i++) {
+            if (mEnterCounts[i] == 0 && mDwellMillis[i] == 0) {
+                continue;
+            }
+            sb.append(STATES[i].name())
+                    .append(": ").append(mDwellMillis[i]).append("ms/")
+                    .append(mEnterCounts[i]).append(", ");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -1,27 +1,41 @@
 package com.icourt.loading;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.CheckResult;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
+import android.support.v4.view.ViewCompat;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.FrameLayout;
-import android.widget.ImageView;
-import android.widget.TextView;
+
+import com.icourt.loading.core.Clock;
+import com.icourt.loading.core.ViewStateMachine;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.icourt.loading.ViewState.VIEW_STATE_CONTENT;
+import static com.icourt.loading.ViewState.VIEW_STATE_CUSTOM;
 import static com.icourt.loading.ViewState.VIEW_STATE_EMPTY;
 import static com.icourt.loading.ViewState.VIEW_STATE_ERROR;
 import static com.icourt.loading.ViewState.VIEW_STATE_LOADING;
+import static com.icourt.loading.ViewState.VIEW_STATE_SKELETON;
 import static com.icourt.loading.ViewState.VIEW_STATE_UNKNOWN;
 
 /**
@@ -33,6 +47,10 @@ import static com.icourt.loading.ViewState.VIEW_STATE_UNKNOWN;
  */
 public class AlphaStateLayout extends FrameLayout {
 
+    /**
+     * 未注册的自定义状态
+     */
+    public static final int NO_STATE = ViewStateMachine.NO_STATE;
 
     private LayoutInflater mInflater;
 
@@ -46,10 +64,94 @@ public class AlphaStateLayout extends FrameLayout {
 
     private boolean mAnimateViewChanges = false;
 
+    @Nullable
+    private StateCrossFader mCrossFader;
+
+    private int mSwitchDepth;
+    private boolean mSelfLayoutPending;
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    /**
+     * 测量/布局期间FrameLayout只能看到这些子view, 见{@link #getChildAt(int)}
+     */
+    private final ArrayList<View> mDrawnChildren = new ArrayList<>(4);
+    private boolean mFilteringChildren;
+
+    @Nullable
+    private SkeletonPainter mSkeletonPainter;
+    private int mSkeletonColor;
+    private int mSkeletonHighlightColor;
+    private float mSkeletonRadius;
+    private long mSkeletonDuration;
+
     @Nullable
     private StateListener mListener;
 
-    private ViewState mViewState = VIEW_STATE_UNKNOWN;
+    @Nullable
+    private AlphaStateViewPool mViewPool;
+
+    @Nullable
+    private CharSequence mEmptyText;
+    @DrawableRes
+    private int mEmptyImageRes;
+    @Nullable
+    private CharSequence mErrorText;
+    @DrawableRes
+    private int mErrorImageRes;
+    @Nullable
+    private OnClickListener mRetryListener;
+    @Nullable
+    private AlphaRetryPolicy mRetryPolicy;
+
+    /**
+     * 状态选择和loading延迟/最短显示时间, 见{@link ViewStateMachine}
+     */
+    private ViewStateMachine mStates;
+    private static final OnStateChangeListener[] NO_LISTENERS = new OnStateChangeListener[0];
+    private OnStateChangeListener[] mStateChangeListeners = NO_LISTENERS;
+    private final Runnable mCommitPendingState = new Runnable() {
+        @Override
+        public void run() {
+            mStates.commitPending();
+        }
+    };
+    private final ViewStateMachine.Callback mStateCallback = new ViewStateMachine.Callback() {
+        @Override
+        public void schedule(long delayMillis) {
+            removeCallbacks(mCommitPendingState);
+            postDelayed(mCommitPendingState, delayMillis);
+        }
+
+        @Override
+        public void cancel() {
+            removeCallbacks(mCommitPendingState);
+        }
+
+        @Override
+        public void onStateApplied(ViewState previous, ViewState current, int customState, long dwellMillis) {
+            dispatchStateChanged(previous, current, dwellMillis);
+        }
+
+        @Override
+        public void onStateUnchanged(ViewState state, int customState) {
+            if (mRetryPolicy != null) {
+                mRetryPolicy.onStateUnchanged(state);
+            }
+        }
+    };
+    private static final Clock UPTIME_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+    /**
+     * 当前显示的状态布局
+     */
+    @Nullable
+    private View mActiveView;
+    private final SparseArray<View> mCustomViews = new SparseArray<>();
+    private final SparseIntArray mCustomLayouts = new SparseIntArray();
     int loadingViewResId;
     int emptyViewResId;
     int errorViewResId;
@@ -77,58 +179,325 @@ public class AlphaStateLayout extends FrameLayout {
         errorViewResId = a.getResourceId(R.styleable.AlphaStateView_asv_errorView, -1);
         int viewState = a.getInt(R.styleable.AlphaStateView_asv_viewState, 0);
         mAnimateViewChanges = a.getBoolean(R.styleable.AlphaStateView_asv_animateViewChanges, false);
+        ViewState initialState;
         switch (viewState) {
             case 0:
-                mViewState = VIEW_STATE_CONTENT;
+                initialState = VIEW_STATE_CONTENT;
                 break;
             case 1:
-                mViewState = VIEW_STATE_ERROR;
+                initialState = VIEW_STATE_ERROR;
                 break;
             case 2:
-                mViewState = VIEW_STATE_EMPTY;
+                initialState = VIEW_STATE_EMPTY;
                 break;
             case 3:
-                mViewState = VIEW_STATE_LOADING;
+                initialState = VIEW_STATE_LOADING;
+                break;
+            case 4:
+                initialState = VIEW_STATE_SKELETON;
                 break;
             default:
-                mViewState = VIEW_STATE_UNKNOWN;
+                initialState = VIEW_STATE_UNKNOWN;
                 break;
         }
         contentEmptyCoexist = a.getBoolean(R.styleable.AlphaStateView_asv_contentEmptyCoexist, false);
         contentLoadingCoexist = a.getBoolean(R.styleable.AlphaStateView_asv_contentLoadingCoexist, false);
+        mStates = new ViewStateMachine(initialState, UPTIME_CLOCK, mStateCallback);
+        // attach之前不计入停留时间
+        mStates.pauseDwell();
+        mStates.setLoadingShowDelay(a.getInt(R.styleable.AlphaStateView_asv_loadingShowDelay, 0));
+        mStates.setLoadingMinShowTime(a.getInt(R.styleable.AlphaStateView_asv_loadingMinShowTime, 0));
+        mSkeletonColor = a.getColor(R.styleable.AlphaStateView_asv_skeletonColor, 0xFFEEEEEE);
+        mSkeletonHighlightColor = a.getColor(R.styleable.AlphaStateView_asv_skeletonHighlightColor, 0xFFF8F8F8);
+        mSkeletonRadius = a.getDimension(R.styleable.AlphaStateView_asv_skeletonRadius,
+                4 * getResources().getDisplayMetrics().density);
+        mSkeletonDuration = a.getInt(R.styleable.AlphaStateView_asv_skeletonDuration, 1200);
         a.recycle();
+        mViewPool = AlphaStateViewPool.from(getContext());
+        AlphaMemory.register(this);
     }
 
+    /**
+     * 添加当前状态的布局; 其他状态的布局在进入对应状态或者调用{@link #getView(ViewState)}时才创建,
+     * 恢复状态后不会创建用不到的loading布局
+     */
     private void addStateChild() {
-        if (loadingViewResId > -1 && mLoadingView == null) {
-            mLoadingView = mInflater.inflate(loadingViewResId, this, false);
-            addView(mLoadingView, mLoadingView.getLayoutParams());
+        boolean traced = AlphaTrace.begin(AlphaTrace.STATE_ADD_CHILD);
+        try {
+            ensureStateView(mStates.getCurrentState());
+        } finally {
+            AlphaTrace.end(traced);
+        }
+    }
+
+    /**
+     * 确保状态对应的布局已经创建
+     *
+     * @param state
+     * @return
+     */
+    @Nullable
+    private View ensureStateView(ViewState state) {
+        switch (state) {
+            case VIEW_STATE_LOADING:
+                if (mLoadingView == null && loadingViewResId > -1) {
+                    mLoadingView = obtainStateView(loadingViewResId);
+                    attachStateView(mLoadingView);
+                }
+                return mLoadingView;
+
+            case VIEW_STATE_EMPTY:
+                if (mEmptyView == null && emptyViewResId > -1) {
+                    mEmptyView = obtainStateView(emptyViewResId);
+                    attachStateView(mEmptyView);
+                }
+                return mEmptyView;
+
+            case VIEW_STATE_ERROR:
+                if (mErrorView == null && errorViewResId > -1) {
+                    mErrorView = obtainStateView(errorViewResId);
+                    attachStateView(mErrorView);
+                }
+                return mErrorView;
+
+            case VIEW_STATE_CUSTOM:
+                return ensureCustomView(mStates.getCurrentCustomState());
+
+            default:
+                return mContentView;
+        }
+    }
+
+    @Nullable
+    private View ensureCustomView(int stateId) {
+        View view = mCustomViews.get(stateId);
+        if (view == null) {
+            int layoutRes = mCustomLayouts.get(stateId, -1);
+            if (layoutRes > -1) {
+                view = obtainStateView(layoutRes);
+                mCustomViews.put(stateId, view);
+                attachStateView(view);
+            }
+        }
+        return view;
+    }
+
+    private View obtainStateView(@LayoutRes int layoutRes) {
+        if (mInflater == null) {
+            mInflater = LayoutInflater.from(getContext());
+        }
+        boolean traced = AlphaTrace.begin(AlphaTrace.STATE_INFLATE);
+        try {
+            if (mViewPool != null) {
+                return mViewPool.acquire(mInflater, layoutRes, this);
+            }
+            View view = mInflater.inflate(layoutRes, this, false);
+            view.setTag(R.id.alpha_state_view_layout_res, layoutRes);
+            return view;
+        } finally {
+            AlphaTrace.end(traced);
+        }
+    }
+
+    /**
+     * 添加到布局中并应用已设置的文字/图片/监听
+     *
+     * @param view
+     */
+    private void attachStateView(View view) {
+        if (view != mContentView) {
+            view.setVisibility(View.GONE);
+        }
+        addView(view, view.getLayoutParams());
+        bindStateView(view);
+    }
+
+    private void bindStateView(View view) {
+        StateViewHolder holder = StateViewHolder.of(view);
+        if (view == mEmptyView) {
+            if (mEmptyText != null) {
+                holder.setEmptyText(mEmptyText);
+            }
+            if (mEmptyImageRes != 0) {
+                holder.setEmptyImage(mEmptyImageRes);
+            }
+        } else if (view == mErrorView) {
+            if (mErrorText != null) {
+                holder.setErrorText(mErrorText);
+            }
+            if (mErrorImageRes != 0) {
+                holder.setErrorImage(mErrorImageRes);
+            }
+            if (mRetryListener != null) {
+                holder.setRetryListener(mRetryListener);
+            }
+        }
+    }
+
+    /**
+     * 移除不再使用的状态布局, 使用回收池时归还到池中;
+     * 内容布局由调用方持有, 即使通过布局资源创建也不回收
+     *
+     * @param view
+     */
+    private void discardStateView(@Nullable View view) {
+        if (view == null) {
+            return;
+        }
+        if (mActiveView == view) {
+            mActiveView = null;
+        }
+        removeView(view);
+        view.setTag(R.id.alpha_state_view_handed_out, null);
+        if (mViewPool != null && view != mContentView && AlphaStateViewPool.getLayoutRes(view) != -1) {
+            StateViewHolder.of(view).reset();
+            mViewPool.release(view);
+        }
+    }
+
+    /**
+     * 将已经隐藏的loading/empty/error布局归还到回收池
+     */
+    private void recycleInactiveStateViews() {
+        if (mViewPool == null) {
+            return;
+        }
+        discardInactiveStateViews();
+    }
+
+    /**
+     * 已创建的loading/empty/error/自定义状态布局, 不包括内容布局, 用于内存统计
+     *
+     * @param out
+     */
+    void collectStateViews(@NonNull List<View> out) {
+        if (mLoadingView != null) {
+            out.add(mLoadingView);
+        }
+        if (mEmptyView != null) {
+            out.add(mEmptyView);
+        }
+        if (mErrorView != null) {
+            out.add(mErrorView);
+        }
+        for (int i = 0; i < mCustomViews.size(); i++) {
+            out.add(mCustomViews.valueAt(i));
+        }
+    }
+
+    /**
+     * 释放已经隐藏的状态布局和回收池中的布局, 再次进入状态时重新inflate;
+     * 直接设置的view无法重新获取, 保留; 通过{@link #getView(ViewState)}交给调用方的view可能仍被持有, 也保留
+     */
+    void releaseOffscreen() {
+        AlphaStateViewPool pool = mViewPool;
+        mViewPool = null;
+        try {
+            discardInactiveStateViews();
+        } finally {
+            mViewPool = pool;
+        }
+        if (pool != null) {
+            pool.clear();
+        }
+    }
+
+    private void discardInactiveStateViews() {
+        if (isRecyclable(mLoadingView, loadingViewResId, VIEW_STATE_LOADING)) {
+            View view = mLoadingView;
+            mLoadingView = null;
+            discardStateView(view);
+        }
+        if (isRecyclable(mEmptyView, emptyViewResId, VIEW_STATE_EMPTY)) {
+            View view = mEmptyView;
+            mEmptyView = null;
+            discardStateView(view);
+        }
+        if (isRecyclable(mErrorView, errorViewResId, VIEW_STATE_ERROR)) {
+            View view = mErrorView;
+            mErrorView = null;
+            discardStateView(view);
+        }
+        for (int i = mCustomViews.size() - 1; i >= 0; i--) {
+            int stateId = mCustomViews.keyAt(i);
+            View view = mCustomViews.valueAt(i);
+            boolean active = isShowingCustomState(stateId);
+            if (!active && view.getVisibility() == View.GONE && !isHandedOut(view)
+                    && AlphaStateViewPool.getLayoutRes(view) == mCustomLayouts.get(stateId, -1)) {
+                mCustomViews.removeAt(i);
+                discardStateView(view);
+            }
         }
+    }
+
+    /**
+     * 只回收由布局资源创建且已经隐藏的view, 直接设置的view无法重新获取, 保留
+     */
+    private boolean isRecyclable(@Nullable View view, int layoutRes, ViewState state) {
+        return view != null
+                && mStates.getCurrentState() != state
+                && view.getVisibility() == View.GONE
+                && !isHandedOut(view)
+                && layoutRes > -1
+                && AlphaStateViewPool.getLayoutRes(view) == layoutRes;
+    }
+
+    /**
+     * view是否通过{@link #getView(ViewState)}交给过调用方, 归还/移除时清除
+     */
+    private static boolean isHandedOut(View view) {
+        return view.getTag(R.id.alpha_state_view_handed_out) != null;
+    }
 
-        if (emptyViewResId > -1 && mEmptyView == null) {
-            mEmptyView = mInflater.inflate(emptyViewResId, this, false);
-            addView(mEmptyView, mEmptyView.getLayoutParams());
+    private static View handOut(@Nullable View view) {
+        if (view != null) {
+            view.setTag(R.id.alpha_state_view_handed_out, Boolean.TRUE);
         }
+        return view;
+    }
 
-        if (errorViewResId > -1 && mErrorView == null) {
-            mErrorView = mInflater.inflate(errorViewResId, this, false);
-            addView(mErrorView, mErrorView.getLayoutParams());
+    /**
+     * 设置共享的状态布局回收池, 设置后loading/empty/error布局在进入状态时获取, 离开状态时归还
+     * <p>
+     * 传null则不再使用回收池
+     *
+     * @param pool
+     */
+    public void setStateViewPool(@Nullable AlphaStateViewPool pool) {
+        if (mViewPool == pool) {
+            return;
         }
+        mViewPool = pool;
+        recycleInactiveStateViews();
+    }
+
+    @Nullable
+    public AlphaStateViewPool getStateViewPool() {
+        return mViewPool;
     }
 
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
-        addStateChild();
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            int stateId = getLayoutStateId(child.getLayoutParams());
+            if (stateId != NO_STATE) {
+                child.setVisibility(View.GONE);
+                mCustomViews.put(stateId, child);
+            }
+        }
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mContentView == null) {
-            return;
+        mStates.resumeDwell();
+        addStateChild();
+        if (mContentView != null) {
+            setView(VIEW_STATE_UNKNOWN);
         }
-        setView(VIEW_STATE_UNKNOWN);
+        mStates.reschedulePending();
     }
 
     /**
@@ -138,7 +507,7 @@ public class AlphaStateLayout extends FrameLayout {
      */
     @Override
     public void addView(View child) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, child.getLayoutParams())) {
             mContentView = child;
         }
         super.addView(child);
@@ -146,7 +515,7 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     public void addView(View child, int index) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, child.getLayoutParams())) {
             mContentView = child;
         }
         super.addView(child, index);
@@ -154,7 +523,7 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     public void addView(View child, int index, ViewGroup.LayoutParams params) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, params)) {
             mContentView = child;
         }
         super.addView(child, index, params);
@@ -162,7 +531,7 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     public void addView(View child, ViewGroup.LayoutParams params) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, params)) {
             mContentView = child;
         }
         super.addView(child, params);
@@ -170,7 +539,7 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     public void addView(View child, int width, int height) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, child.getLayoutParams())) {
             mContentView = child;
         }
         super.addView(child, width, height);
@@ -178,7 +547,7 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     protected boolean addViewInLayout(View child, int index, ViewGroup.LayoutParams params) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, params)) {
             mContentView = child;
         }
         return super.addViewInLayout(child, index, params);
@@ -186,14 +555,17 @@ public class AlphaStateLayout extends FrameLayout {
 
     @Override
     protected boolean addViewInLayout(View child, int index, ViewGroup.LayoutParams params, boolean preventRequestLayout) {
-        if (isValidContentView(child)) {
+        if (isValidContentView(child, params)) {
             mContentView = child;
         }
         return super.addViewInLayout(child, index, params, preventRequestLayout);
     }
 
     /**
-     * 通过对应的状态获取对应的view
+     * 通过对应的状态获取对应的view, 布局还未创建时会先创建
+     * <p>
+     * 使用回收池时, 非当前状态的布局可能已经归还到池中, 返回null;
+     * 返回的view不会被{@link AlphaMemory#releaseOffscreen()}释放
      *
      * @param state
      * @return
@@ -203,324 +575,767 @@ public class AlphaStateLayout extends FrameLayout {
     public View getView(ViewState state) {
         switch (state) {
             case VIEW_STATE_LOADING:
-                return mLoadingView;
+                return handOut(mViewPool == null ? ensureStateView(state) : mLoadingView);
 
             case VIEW_STATE_CONTENT:
                 return mContentView;
 
             case VIEW_STATE_EMPTY:
-                return mEmptyView;
+                return handOut(mViewPool == null ? ensureStateView(state) : mEmptyView);
 
             case VIEW_STATE_ERROR:
-                return mErrorView;
+                return handOut(mViewPool == null ? ensureStateView(state) : mErrorView);
+
+            case VIEW_STATE_CUSTOM:
+                return handOut(mCustomViews.get(mStates.getCurrentCustomState()));
+
+            case VIEW_STATE_SKELETON:
+                return mContentView;
 
             default:
                 return null;
         }
     }
 
+    /**
+     * 获取自定义状态对应的view, 使用布局资源注册且还未显示过时返回null
+     *
+     * @param stateId
+     * @return
+     */
+    @Nullable
+    @CheckResult
+    public View getCustomView(int stateId) {
+        return mCustomViews.get(stateId);
+    }
+
+    /**
+     * 获取状态, loading延迟显示或者最短显示时间内, 返回最后一次设置的状态
+     *
+     * @return
+     */
     public ViewState getViewState() {
-        return mViewState;
+        return mStates.getRequestedState();
+    }
+
+    /**
+     * 当前的自定义状态, 只在{@link ViewState#VIEW_STATE_CUSTOM}时有意义
+     *
+     * @return
+     */
+    public int getCustomState() {
+        return mStates.getRequestedCustomState();
     }
 
     public void setViewState(ViewState state) {
-        if (state != mViewState) {
-            ViewState previous = mViewState;
-            mViewState = state;
-            setView(previous);
-            if (mListener != null) {
-                mListener.onStateChanged(mViewState);
-            }
-        }
+        requestState(state, getCustomState());
     }
 
     /**
-     * 展示loading布局
+     * 切换到自定义状态
+     *
+     * @param stateId 通过{@link #registerState(int, int)}或者xml中asv_layout_stateId注册的状态
      */
-    public void showLoadingView() {
-        setViewState(VIEW_STATE_LOADING);
+    public void setCustomState(int stateId) {
+        requestState(VIEW_STATE_CUSTOM, stateId);
     }
 
     /**
-     * R.id.alpha_empty_view_tv
+     * 按照loading延迟显示/最短显示时间合并状态切换, 时间窗口内只保留最后一次设置的状态
      *
-     * @param id
-     * @return
+     * @param state
+     * @param customState
      */
-    public AlphaStateLayout setEmptyText(@StringRes int id) {
-        if (mEmptyView != null) {
-            TextView viewById = mEmptyView.findViewById(R.id.alpha_empty_view_tv);
-            if (viewById != null) {
-                viewById.setText(id);
-            }
+    private void requestState(ViewState state, int customState) {
+        mStates.request(state, customState);
+    }
+
+    private boolean isShowingCustomState(int stateId) {
+        return mStates.getCurrentState() == VIEW_STATE_CUSTOM && mStates.getCurrentCustomState() == stateId;
+    }
+
+    private void dispatchStateChanged(ViewState previous, ViewState state, long dwell) {
+        setView(previous);
+        if (mListener != null) {
+            mListener.onStateChanged(state);
+        }
+        OnStateChangeListener[] listeners = mStateChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onStateChanged(previous, state, dwell);
         }
-        return this;
     }
 
     /**
-     * R.id.alpha_empty_view_tv
+     * 添加状态监听, 可以添加多个
      *
-     * @param id
-     * @return
+     * @param listener
      */
-    public AlphaStateLayout setEmptyText(@StringRes int id, Object... formatArgs) {
-        if (mEmptyView != null) {
-            TextView viewById = mEmptyView.findViewById(R.id.alpha_empty_view_tv);
-            if (viewById != null) {
-                viewById.setText(getContext().getString(id, formatArgs));
+    public void addStateChangeListener(@NonNull OnStateChangeListener listener) {
+        OnStateChangeListener[] listeners = mStateChangeListeners;
+        for (OnStateChangeListener l : listeners) {
+            if (l == listener) {
+                return;
+            }
+        }
+        // 只在增删时复制数组, 分发时不分配对象
+        OnStateChangeListener[] newListeners = new OnStateChangeListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        mStateChangeListeners = newListeners;
+    }
+
+    public void removeStateChangeListener(@NonNull OnStateChangeListener listener) {
+        OnStateChangeListener[] listeners = mStateChangeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                OnStateChangeListener[] newListeners = new OnStateChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                mStateChangeListeners = newListeners;
+                return;
             }
         }
-        return this;
     }
 
     /**
-     * R.id.alpha_empty_view_iv
+     * 当前显示的状态已经持续的时间(ms), 不包含未attach的时间
      *
-     * @param id
      * @return
      */
-    public AlphaStateLayout setEmptyImage(@DrawableRes int id) {
-        if (mEmptyView != null) {
-            ImageView viewById = mEmptyView.findViewById(R.id.alpha_empty_view_iv);
-            if (viewById != null) {
-                viewById.setImageResource(id);
-            }
-        }
-        return this;
+    public long getCurrentStateDuration() {
+        return mStates.getCurrentStateDuration();
     }
 
     /**
-     * R.id.alpha_error_view_tv
+     * 当前显示的状态, 与{@link #getViewState()}不同, 不包含等待生效的状态
+     */
+    ViewState getDisplayedState() {
+        return mStates.getCurrentState();
+    }
+
+    /**
+     * loading延迟显示的时间, 在此之前切换到其他状态则loading布局不会显示
      *
-     * @param charSequence
-     * @return
+     * @param delayMillis 小于等于0时立即显示
      */
-    public AlphaStateLayout setErrorText(CharSequence charSequence) {
-        if (mErrorView != null) {
-            TextView viewById = mErrorView.findViewById(R.id.alpha_error_view_tv);
-            if (viewById != null) {
-                viewById.setText(charSequence);
-            }
-        }
-        return this;
+    public void setLoadingShowDelay(long delayMillis) {
+        mStates.setLoadingShowDelay(delayMillis);
     }
 
     /**
-     * R.id.alpha_error_view_iv
+     * loading布局显示后最短的显示时间, 避免一闪而过
      *
-     * @param id
-     * @return
+     * @param minShowTimeMillis 小于等于0时不限制
      */
-    public AlphaStateLayout setErrorImage(@DrawableRes int id) {
-        if (mErrorView != null) {
-            ImageView viewById = mErrorView.findViewById(R.id.alpha_error_view_iv);
-            if (viewById != null) {
-                viewById.setImageResource(id);
-            }
-        }
-        return this;
+    public void setLoadingMinShowTime(long minShowTimeMillis) {
+        mStates.setLoadingMinShowTime(minShowTimeMillis);
     }
 
     /**
-     * aR.id.alpha_error_view_retry_tv
+     * 注册自定义状态的布局, 进入该状态时才会inflate
      *
-     * @param l
-     * @return
+     * @param stateId
+     * @param layoutRes
      */
-    public AlphaStateLayout setErrorRetryListener(@Nullable OnClickListener l) {
-        if (mErrorView != null) {
-            TextView viewById = mErrorView.findViewById(R.id.alpha_error_view_retry_tv);
-            if (viewById != null) {
-                viewById.setOnClickListener(l);
-            }
+    public void registerState(int stateId, @LayoutRes int layoutRes) {
+        checkStateId(stateId);
+        unregisterState(stateId);
+        mCustomLayouts.put(stateId, layoutRes);
+        if (isShowingCustomState(stateId)) {
+            setView(VIEW_STATE_UNKNOWN);
         }
-        return this;
     }
 
     /**
-     * 设置内容布局与loading布局共存
+     * 注册自定义状态的布局
      *
-     * @param contentLoadingCoexist
+     * @param stateId
+     * @param view
      */
-    public void setContentLoadingCoexist(boolean contentLoadingCoexist) {
-        if (this.contentLoadingCoexist != contentLoadingCoexist) {
-            this.contentLoadingCoexist = contentLoadingCoexist;
-            if (getViewState() == VIEW_STATE_LOADING && mContentView != null) {
-                mContentView.setVisibility(contentLoadingCoexist ? VISIBLE : GONE);
-            }
+    public void registerState(int stateId, View view) {
+        checkStateId(stateId);
+        unregisterState(stateId);
+        mCustomViews.put(stateId, view);
+        attachStateView(view);
+        if (isShowingCustomState(stateId)) {
+            setView(VIEW_STATE_UNKNOWN);
         }
-
     }
 
     /**
-     * 设置内容布局与empty布局共存
+     * 移除自定义状态
      *
-     * @param contentEmptyCoexist
+     * @param stateId
      */
-    public void setContentEmptyCoexist(boolean contentEmptyCoexist) {
-        if (this.contentEmptyCoexist != contentEmptyCoexist) {
-            this.contentEmptyCoexist = contentEmptyCoexist;
-            if (getViewState() == VIEW_STATE_EMPTY && mContentView != null) {
-                mContentView.setVisibility(contentEmptyCoexist ? VISIBLE : GONE);
+    public void unregisterState(int stateId) {
+        mCustomLayouts.delete(stateId);
+        View view = mCustomViews.get(stateId);
+        if (view != null) {
+            mCustomViews.delete(stateId);
+            if (mActiveView == view) {
+                mActiveView = null;
             }
+            discardStateView(view);
         }
     }
 
+    private static void checkStateId(int stateId) {
+        if (stateId == NO_STATE) {
+            throw new IllegalArgumentException("stateId can not be NO_STATE");
+        }
+    }
 
     /**
-     * @param previousState
+     * 展示loading布局
+     */
+    public void showLoadingView() {
+        setViewState(VIEW_STATE_LOADING);
+    }
+
+    /**
+     * R.id.alpha_empty_view_tv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateLayout setEmptyText(@StringRes int id) {
+        mEmptyText = getContext().getText(id);
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyText(mEmptyText);
+        }
+        return this;
+    }
+
+    /**
+     * R.id.alpha_empty_view_tv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateLayout setEmptyText(@StringRes int id, Object... formatArgs) {
+        mEmptyText = getContext().getString(id, formatArgs);
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyText(mEmptyText);
+        }
+        return this;
+    }
+
+    /**
+     * R.id.alpha_empty_view_tv
+     *
+     * @param charSequence
+     * @return
+     */
+    public AlphaStateLayout setEmptyText(CharSequence charSequence) {
+        mEmptyText = charSequence;
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyText(charSequence);
+        }
+        return this;
+    }
+
+    /**
+     * R.id.alpha_empty_view_iv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateLayout setEmptyImage(@DrawableRes int id) {
+        mEmptyImageRes = id;
+        if (mEmptyView != null) {
+            StateViewHolder.of(mEmptyView).setEmptyImage(id);
+        }
+        return this;
+    }
+
+    /**
+     * R.id.alpha_error_view_tv
+     *
+     * @param charSequence
+     * @return
+     */
+    public AlphaStateLayout setErrorText(CharSequence charSequence) {
+        mErrorText = charSequence;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setErrorText(charSequence);
+        }
+        return this;
+    }
+
+    /**
+     * R.id.alpha_error_view_iv
+     *
+     * @param id
+     * @return
+     */
+    public AlphaStateLayout setErrorImage(@DrawableRes int id) {
+        mErrorImageRes = id;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setErrorImage(id);
+        }
+        return this;
+    }
+
+    /**
+     * aR.id.alpha_error_view_retry_tv
+     *
+     * @param l
+     * @return
+     */
+    public AlphaStateLayout setErrorRetryListener(@Nullable OnClickListener l) {
+        mRetryListener = l;
+        if (mErrorView != null) {
+            StateViewHolder.of(mErrorView).setRetryListener(l);
+        }
+        return this;
+    }
+
+    /**
+     * 设置重试策略, 会替换{@link #setErrorRetryListener(OnClickListener)}设置的监听
+     *
+     * @param policy null移除策略
+     * @return
+     */
+    public AlphaStateLayout setRetryPolicy(@Nullable AlphaRetryPolicy policy) {
+        if (mRetryPolicy == policy) {
+            return this;
+        }
+        if (mRetryPolicy != null) {
+            mRetryPolicy.detach();
+        }
+        mRetryPolicy = policy;
+        if (policy != null) {
+            policy.attach(this);
+        }
+        return setErrorRetryListener(policy);
+    }
+
+    @Nullable
+    public AlphaRetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * 设置内容布局与loading布局共存
+     *
+     * @param contentLoadingCoexist
+     */
+    public void setContentLoadingCoexist(boolean contentLoadingCoexist) {
+        if (this.contentLoadingCoexist != contentLoadingCoexist) {
+            this.contentLoadingCoexist = contentLoadingCoexist;
+            if (mStates.getCurrentState() == VIEW_STATE_LOADING && mContentView != null) {
+                mContentView.setVisibility(contentLoadingCoexist ? VISIBLE : GONE);
+            }
+        }
+
+    }
+
+    /**
+     * 设置内容布局与empty布局共存
+     *
+     * @param contentEmptyCoexist
+     */
+    public void setContentEmptyCoexist(boolean contentEmptyCoexist) {
+        if (this.contentEmptyCoexist != contentEmptyCoexist) {
+            this.contentEmptyCoexist = contentEmptyCoexist;
+            if (mStates.getCurrentState() == VIEW_STATE_EMPTY && mContentView != null) {
+                mContentView.setVisibility(contentEmptyCoexist ? VISIBLE : GONE);
+            }
+        }
+    }
+
+
+    /**
+     * 切换到当前状态对应的布局, 只隐藏离开的布局并显示进入的布局
+     *
+     * @param previousState 为VIEW_STATE_UNKNOWN时重新同步所有布局的可见性
      */
     private void setView(ViewState previousState) {
-        switch (mViewState) {
-            case VIEW_STATE_LOADING:
-                if (mLoadingView == null) {
-                    return;
-                }
+        boolean traced = AlphaTrace.begin(AlphaTrace.STATE_SET_VIEW);
+        beginSwitch();
+        try {
+            switchView(previousState);
+        } finally {
+            endSwitch();
+            AlphaTrace.end(traced);
+        }
+    }
 
-                if (mContentView != null && !contentLoadingCoexist) {
-                    mContentView.setVisibility(View.GONE);
-                }
-                if (mErrorView != null) {
-                    mErrorView.setVisibility(View.GONE);
-                }
-                if (mEmptyView != null) {
-                    mEmptyView.setVisibility(View.GONE);
-                }
+    private void switchView(ViewState previousState) {
+        View incoming = ensureStateView(mStates.getCurrentState());
+        if (incoming == null) {
+            return;
+        }
+        if (previousState == VIEW_STATE_UNKNOWN) {
+            if (mCrossFader != null) {
+                mCrossFader.end();
+            }
+            hideInactiveViews(incoming);
+        }
 
-                if (mAnimateViewChanges) {
-                    animateLayoutChange(getView(previousState));
-                } else {
-                    mLoadingView.setVisibility(View.VISIBLE);
-                }
-                break;
+        View outgoing = mActiveView != incoming ? mActiveView : null;
+        boolean contentCoexist = mContentView != null && incoming != mContentView
+                && isContentCoexist(mStates.getCurrentState());
+        if (contentCoexist && outgoing == mContentView) {
+            outgoing = null;
+        }
+        mActiveView = incoming;
 
-            case VIEW_STATE_EMPTY:
-                if (mEmptyView == null) {
-                    return;
-                }
-                if (mLoadingView != null) {
-                    mLoadingView.setVisibility(View.GONE);
-                }
-                if (mErrorView != null) {
-                    mErrorView.setVisibility(View.GONE);
-                }
-                if (mContentView != null && !contentEmptyCoexist) {
-                    mContentView.setVisibility(View.GONE);
-                }
+        if (mAnimateViewChanges) {
+            animateLayoutChange(outgoing);
+        } else {
+            if (mCrossFader != null) {
+                mCrossFader.end();
+            }
+            if (outgoing != null) {
+                outgoing.setVisibility(View.GONE);
+            }
+            incoming.setVisibility(View.VISIBLE);
+        }
 
-                if (mAnimateViewChanges) {
-                    animateLayoutChange(getView(previousState));
-                } else {
-                    mEmptyView.setVisibility(View.VISIBLE);
-                }
-                break;
+        // 过渡处理完之后再处理内容布局, 避免被打断的过渡改写内容布局的可见性
+        if (mContentView != null && incoming != mContentView) {
+            if (contentCoexist) {
+                mContentView.setVisibility(View.VISIBLE);
+            } else if (outgoing != mContentView) {
+                mContentView.setVisibility(View.GONE);
+            }
+        }
+        updateSkeleton();
+        recycleInactiveStateViews();
+    }
 
-            case VIEW_STATE_ERROR:
-                if (mErrorView == null) {
-                    return;
-                }
-                if (mLoadingView != null) {
-                    mLoadingView.setVisibility(View.GONE);
-                }
-                if (mContentView != null) {
-                    mContentView.setVisibility(View.GONE);
-                }
-                if (mEmptyView != null) {
-                    mEmptyView.setVisibility(View.GONE);
-                }
+    /**
+     * 骨架屏状态下内容布局照常测量布局但不绘制, 由dispatchDraw绘制占位块
+     */
+    private void updateSkeleton() {
+        if (mStates.getCurrentState() == VIEW_STATE_SKELETON && mContentView != null) {
+            if (mSkeletonPainter == null) {
+                mSkeletonPainter = new SkeletonPainter(this, mSkeletonColor, mSkeletonHighlightColor,
+                        mSkeletonRadius, mSkeletonDuration);
+            }
+            if (getWidth() > 0) {
+                mSkeletonPainter.collect(mContentView);
+            }
+            if (getWindowToken() != null) {
+                mSkeletonPainter.start();
+            }
+            invalidate();
+        } else if (mSkeletonPainter != null) {
+            mSkeletonPainter.stop();
+            invalidate();
+        }
+    }
 
-                if (mAnimateViewChanges) {
-                    animateLayoutChange(getView(previousState));
-                } else {
-                    mErrorView.setVisibility(View.VISIBLE);
-                }
-                break;
-            case VIEW_STATE_CONTENT:
-            default:
-                if (mContentView == null) {
-                    return;
-                }
+    private boolean isSkeletonShowing() {
+        return mStates.getCurrentState() == VIEW_STATE_SKELETON && mSkeletonPainter != null && mContentView != null;
+    }
+
+    /**
+     * 开始切换状态布局的可见性, 期间的requestLayout在尺寸不变时只在本布局内处理
+     */
+    private void beginSwitch() {
+        mSwitchDepth++;
+    }
 
+    private void endSwitch() {
+        if (--mSwitchDepth == 0 && mSelfLayoutPending) {
+            mSelfLayoutPending = false;
+            forceLayout();
+            measure(mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+            layout(getLeft(), getTop(), getRight(), getBottom());
+            invalidate();
+        }
+    }
 
-                if (mLoadingView != null) {
-                    mLoadingView.setVisibility(View.GONE);
-                }
-                if (mErrorView != null) {
-                    mErrorView.setVisibility(View.GONE);
-                }
-                if (mEmptyView != null) {
-                    mEmptyView.setVisibility(View.GONE);
-                }
+    /**
+     * 宽高都是固定值时, 子view的变化不会影响本布局的尺寸, 可以不向上请求重新布局
+     */
+    private boolean canLayoutSelf() {
+        if (getWidth() <= 0
+                || MeasureSpec.getMode(mLastWidthMeasureSpec) != MeasureSpec.EXACTLY
+                || MeasureSpec.getMode(mLastHeightMeasureSpec) != MeasureSpec.EXACTLY
+                || isLayoutRequested()
+                || ViewCompat.isInLayout(this)) {
+            return false;
+        }
+        // 父布局正在布局时请求会被推迟到这次布局之后, 自行布局会和父布局重复
+        for (ViewParent parent = getParent(); parent instanceof View; parent = parent.getParent()) {
+            if (ViewCompat.isInLayout((View) parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                if (mAnimateViewChanges) {
-                    animateLayoutChange(getView(previousState));
-                } else {
-                    mContentView.setVisibility(View.VISIBLE);
-                }
-                break;
+    @Override
+    public void requestLayout() {
+        if (mSwitchDepth > 0 && canLayoutSelf()) {
+            mSelfLayoutPending = true;
+            return;
         }
+        super.requestLayout();
+    }
+
+    /**
+     * 是否需要测量/布局/绘制, 被不透明的全屏状态布局完全覆盖的子view跳过;
+     * 只有绘制顺序在覆盖布局之下的子view才会被覆盖
+     *
+     * @param child
+     * @return
+     */
+    private boolean isChildDrawn(View child) {
+        if (child.getVisibility() == View.GONE) {
+            return false;
+        }
+        View cover = mActiveView;
+        if (cover == null || cover == child || (mCrossFader != null && mCrossFader.isRunning())) {
+            return true;
+        }
+        if (!isDrawnBelow(child, cover)) {
+            return true;
+        }
+        return !coversParent(cover);
+    }
+
+    /**
+     * 与ViewGroup的绘制顺序一致: 先按Z(API 21+), Z相同时按添加顺序
+     */
+    private boolean isDrawnBelow(View child, View cover) {
+        float childZ = ViewCompat.getZ(child);
+        float coverZ = ViewCompat.getZ(cover);
+        if (childZ != coverZ) {
+            return childZ < coverZ;
+        }
+        return indexOfChild(child) < indexOfChild(cover);
+    }
+
+    private static boolean coversParent(View view) {
+        if (view.getVisibility() != View.VISIBLE || !view.isOpaque()) {
+            return false;
+        }
+        ViewGroup.LayoutParams lp = view.getLayoutParams();
+        if (lp.width != ViewGroup.LayoutParams.MATCH_PARENT || lp.height != ViewGroup.LayoutParams.MATCH_PARENT) {
+            return false;
+        }
+        if (lp instanceof MarginLayoutParams) {
+            MarginLayoutParams mlp = (MarginLayoutParams) lp;
+            return mlp.leftMargin == 0 && mlp.topMargin == 0 && mlp.rightMargin == 0 && mlp.bottomMargin == 0;
+        }
+        return true;
+    }
+
+    /**
+     * 测量/布局期间只把实际绘制的子view暴露给FrameLayout, 其他行为保持FrameLayout的实现
+     */
+    private void beginFilterChildren() {
+        mDrawnChildren.clear();
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            View child = getChildAt(i);
+            if (isChildDrawn(child)) {
+                mDrawnChildren.add(child);
+            }
+        }
+        mFilteringChildren = true;
+    }
+
+    private void endFilterChildren() {
+        mFilteringChildren = false;
+        mDrawnChildren.clear();
+    }
+
+    @Override
+    public int getChildCount() {
+        return mFilteringChildren ? mDrawnChildren.size() : super.getChildCount();
+    }
+
+    @Override
+    public View getChildAt(int index) {
+        if (mFilteringChildren) {
+            return index >= 0 && index < mDrawnChildren.size() ? mDrawnChildren.get(index) : null;
+        }
+        return super.getChildAt(index);
+    }
+
+    /**
+     * 与FrameLayout一致, 但只测量实际绘制的子view
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        beginFilterChildren();
+        try {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            endFilterChildren();
+        }
+    }
+
+    /**
+     * 与FrameLayout一致, 但只布局实际绘制的子view
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        beginFilterChildren();
+        try {
+            super.onLayout(changed, left, top, right, bottom);
+        } finally {
+            endFilterChildren();
+        }
+
+        if (isSkeletonShowing()) {
+            mSkeletonPainter.collect(mContentView);
+        }
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child == mContentView && isSkeletonShowing()) {
+            return false;
+        }
+        if (!isChildDrawn(child)) {
+            return false;
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (isSkeletonShowing()) {
+            mSkeletonPainter.draw(canvas);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        return isSkeletonShowing() || super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return isSkeletonShowing() || super.onTouchEvent(event);
+    }
+
+    /**
+     * 展示骨架屏
+     */
+    public void showSkeleton() {
+        setViewState(VIEW_STATE_SKELETON);
+    }
+
+    /**
+     * 隐藏除目标布局以外的所有状态布局, 只在重新同步时调用
+     *
+     * @param incoming
+     */
+    private void hideInactiveViews(View incoming) {
+        if (mLoadingView != null && mLoadingView != incoming) {
+            mLoadingView.setVisibility(View.GONE);
+        }
+        if (mEmptyView != null && mEmptyView != incoming) {
+            mEmptyView.setVisibility(View.GONE);
+        }
+        if (mErrorView != null && mErrorView != incoming) {
+            mErrorView.setVisibility(View.GONE);
+        }
+        for (int i = 0; i < mCustomViews.size(); i++) {
+            View view = mCustomViews.valueAt(i);
+            if (view != incoming) {
+                view.setVisibility(View.GONE);
+            }
+        }
+        if (mContentView != null && mContentView != incoming && !isContentCoexist(mStates.getCurrentState())) {
+            mContentView.setVisibility(View.GONE);
+        }
+        mActiveView = null;
+    }
+
+    /**
+     * 内容布局在该状态下是否保持可见
+     *
+     * @param state
+     * @return
+     */
+    private boolean isContentCoexist(ViewState state) {
+        return (state == VIEW_STATE_LOADING && contentLoadingCoexist)
+                || (state == VIEW_STATE_EMPTY && contentEmptyCoexist);
     }
 
     /**
      * 判断view是否合法
      *
      * @param view
+     * @param params
      * @return
      */
-    private boolean isValidContentView(View view) {
+    private boolean isValidContentView(View view, @Nullable ViewGroup.LayoutParams params) {
         if (mContentView != null && mContentView != view) {
             return false;
         }
+        if (getLayoutStateId(params) != NO_STATE || mCustomViews.indexOfValue(view) >= 0) {
+            return false;
+        }
         return view != mLoadingView && view != mErrorView && view != mEmptyView;
     }
 
+    private static int getLayoutStateId(@Nullable ViewGroup.LayoutParams params) {
+        return params instanceof LayoutParams ? ((LayoutParams) params).stateId : NO_STATE;
+    }
+
     /**
-     * 设置对应状态的布局
+     * 设置对应状态的布局; 传入的view已经是该状态的布局时不做替换, 避免回收池与布局同时持有
      *
      * @param view
      * @param state
      * @param switchToState
      */
     public void setViewForState(View view, ViewState state, boolean switchToState) {
-        switch (state) {
-            case VIEW_STATE_LOADING:
-                if (mLoadingView != null) {
-                    removeView(mLoadingView);
-                }
-                mLoadingView = view;
-                addView(mLoadingView);
-                break;
-
-            case VIEW_STATE_EMPTY:
-                if (mEmptyView != null) {
-                    removeView(mEmptyView);
-                }
-                mEmptyView = view;
-                addView(mEmptyView);
-                break;
-
-            case VIEW_STATE_ERROR:
-                if (mErrorView != null) {
-                    removeView(mErrorView);
-                }
-                mErrorView = view;
-                addView(mErrorView);
-                break;
-
-            case VIEW_STATE_CONTENT:
-                if (mContentView != null) {
-                    removeView(mContentView);
-                }
-                mContentView = view;
-                addView(mContentView);
-                break;
-            default:
-                break;
-        }
+        boolean traced = AlphaTrace.begin(AlphaTrace.STATE_SET_VIEW_FOR_STATE);
+        try {
+            switch (state) {
+                case VIEW_STATE_LOADING:
+                    if (mLoadingView != view) {
+                        discardStateView(mLoadingView);
+                        mLoadingView = view;
+                        attachStateView(mLoadingView);
+                    }
+                    break;
+
+                case VIEW_STATE_EMPTY:
+                    if (mEmptyView != view) {
+                        discardStateView(mEmptyView);
+                        mEmptyView = view;
+                        attachStateView(mEmptyView);
+                    }
+                    break;
+
+                case VIEW_STATE_ERROR:
+                    if (mErrorView != view) {
+                        discardStateView(mErrorView);
+                        mErrorView = view;
+                        attachStateView(mErrorView);
+                    }
+                    break;
+
+                case VIEW_STATE_CONTENT:
+                    if (mContentView != view) {
+                        discardStateView(mContentView);
+                        mContentView = view;
+                        addView(mContentView);
+                    }
+                    break;
+                default:
+                    break;
+            }
 
-        setView(VIEW_STATE_UNKNOWN);
-        if (switchToState) {
-            setViewState(state);
+            setView(VIEW_STATE_UNKNOWN);
+            if (switchToState) {
+                setViewState(state);
+            }
+        } finally {
+            AlphaTrace.end(traced);
         }
     }
 
@@ -534,11 +1349,31 @@ public class AlphaStateLayout extends FrameLayout {
         setViewForState(view, state, false);
     }
 
+    /**
+     * 通过布局资源设置对应状态的布局
+     * <p>
+     * loading/empty/error状态会同时覆盖xml中的asv_loadingView/asv_emptyView/asv_errorView,
+     * 之后回收并重新创建该状态布局时使用新的布局资源
+     *
+     * @param layoutRes
+     * @param state
+     * @param switchToState
+     */
     public void setViewForState(@LayoutRes int layoutRes, ViewState state, boolean switchToState) {
-        if (mInflater == null) {
-            mInflater = LayoutInflater.from(getContext());
+        switch (state) {
+            case VIEW_STATE_LOADING:
+                loadingViewResId = layoutRes;
+                break;
+            case VIEW_STATE_EMPTY:
+                emptyViewResId = layoutRes;
+                break;
+            case VIEW_STATE_ERROR:
+                errorViewResId = layoutRes;
+                break;
+            default:
+                break;
         }
-        View view = mInflater.inflate(layoutRes, this, false);
+        View view = obtainStateView(layoutRes);
         setViewForState(view, state, switchToState);
     }
 
@@ -564,31 +1399,188 @@ public class AlphaStateLayout extends FrameLayout {
         mListener = listener;
     }
 
-    private void animateLayoutChange(@Nullable final View previousView) {
-        if (previousView == null) {
-            View view = getView(mViewState);
-            if (view != null) {
-                view.setVisibility(View.VISIBLE);
-            }
+    private void animateLayoutChange(@Nullable View previousView) {
+        if (mActiveView == null) {
             return;
         }
-
-        previousView.setVisibility(View.VISIBLE);
-        ObjectAnimator anim = ObjectAnimator.ofFloat(previousView, "alpha", 1.0f, 0.0f).setDuration(250L);
-        anim.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (previousView != null) {
-                    previousView.setVisibility(View.GONE);
+        if (mCrossFader == null) {
+            mCrossFader = new StateCrossFader(StateCrossFader.DEFAULT_DURATION, new StateCrossFader.Callback() {
+                @Override
+                public void onSettleStart() {
+                    beginSwitch();
                 }
-                View view = getView(mViewState);
-                if (view != null) {
-                    view.setVisibility(View.VISIBLE);
-                    ObjectAnimator.ofFloat(view, "alpha", 0.0f, 1.0f).setDuration(250L).start();
+
+                @Override
+                public void onSettleEnd() {
+                    recycleInactiveStateViews();
+                    endSwitch();
                 }
+            });
+        }
+        mCrossFader.crossFade(previousView, mActiveView);
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mSkeletonPainter != null) {
+            mSkeletonPainter.update();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (mSkeletonPainter != null) {
+            mSkeletonPainter.update();
+        }
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (mSkeletonPainter != null) {
+            mSkeletonPainter.update();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // 不在detach时提交等待中的状态(否则延迟中的loading会被直接显示), 保留到attach时重新安排
+        removeCallbacks(mCommitPendingState);
+        mStates.pauseDwell();
+        if (mCrossFader != null) {
+            mCrossFader.end();
+        }
+        if (mSkeletonPainter != null) {
+            mSkeletonPainter.stop();
+        }
+        if (mRetryPolicy != null) {
+            mRetryPolicy.onDetachedFromWindow();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.viewState = getViewState();
+        ss.customState = getCustomState();
+        ss.emptyText = mEmptyText;
+        ss.emptyImageRes = mEmptyImageRes;
+        ss.errorText = mErrorText;
+        ss.errorImageRes = mErrorImageRes;
+        return ss;
+    }
+
+    /**
+     * 直接恢复到保存时的状态, 不经过loading延迟和过渡动画
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        if (ss.emptyText != null) {
+            setEmptyText(ss.emptyText);
+        }
+        if (ss.emptyImageRes != 0) {
+            setEmptyImage(ss.emptyImageRes);
+        }
+        if (ss.errorText != null) {
+            setErrorText(ss.errorText);
+        }
+        if (ss.errorImageRes != 0) {
+            setErrorImage(ss.errorImageRes);
+        }
+
+        boolean animate = mAnimateViewChanges;
+        mAnimateViewChanges = false;
+        mStates.applyNow(ss.viewState, ss.customState);
+        mAnimateViewChanges = animate;
+    }
+
+    static class SavedState extends BaseSavedState {
+        ViewState viewState;
+        int customState;
+        CharSequence emptyText;
+        int emptyImageRes;
+        CharSequence errorText;
+        int errorImageRes;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            viewState = ViewState.values()[in.readInt()];
+            customState = in.readInt();
+            emptyText = TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(in);
+            emptyImageRes = in.readInt();
+            errorText = TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(in);
+            errorImageRes = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(viewState.ordinal());
+            out.writeInt(customState);
+            TextUtils.writeToParcel(emptyText, out, flags);
+            out.writeInt(emptyImageRes);
+            TextUtils.writeToParcel(errorText, out, flags);
+            out.writeInt(errorImageRes);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
             }
-        });
-        anim.start();
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    /**
+     * 支持asv_layout_stateId, xml中声明了该属性的子view注册为对应的自定义状态布局
+     */
+    public static class LayoutParams extends FrameLayout.LayoutParams {
+
+        public int stateId = NO_STATE;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+            TypedArray a = c.obtainStyledAttributes(attrs, R.styleable.AlphaStateView_Layout);
+            stateId = a.getInt(R.styleable.AlphaStateView_Layout_asv_layout_stateId, NO_STATE);
+            a.recycle();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(int width, int height, int stateId) {
+            super(width, height);
+            this.stateId = stateId;
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
     }
 
     public interface StateListener {
@@ -599,4 +1591,15 @@ public class AlphaStateLayout extends FrameLayout {
          */
         void onStateChanged(ViewState viewState);
     }
+
+    public interface OnStateChangeListener {
+        /**
+         * 状态发生改变
+         *
+         * @param previous    之前的状态
+         * @param current     当前的状态
+         * @param dwellMillis 在之前状态停留的时间(ms), 不包含未attach的时间
+         */
+        void onStateChanged(ViewState previous, ViewState current, long dwellMillis);
+    }
 }
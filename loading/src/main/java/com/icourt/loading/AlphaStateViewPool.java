@@ -0,0 +1,154 @@
+package com.icourt.loading;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 多个AlphaStateLayout共享的状态布局回收池, 以布局资源id为key
+ * <p>
+ * 池中的view持有创建时的context, 请不要跨Activity共享同一个池;
+ * ViewPager/RecyclerView中的AlphaStateLayout可以通过{@link AlphaStateLayout#setStateViewPool(AlphaStateViewPool)}
+ * 或者让Activity实现{@link Provider}来使用
+ * @Company Beijing icourt
+ * @date createTime：2017/11/20
+ */
+public class AlphaStateViewPool {
+
+    private static final int DEFAULT_MAX_SCRAP = 5;
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<>();
+    private final SparseIntArray mMaxScrap = new SparseIntArray();
+
+    /**
+     * 提供回收池, 一般由Activity实现, xml中的AlphaStateLayout初始化时会通过context查找
+     */
+    public interface Provider {
+        @Nullable
+        AlphaStateViewPool getStateViewPool();
+    }
+
+    /**
+     * 沿着context链查找回收池
+     *
+     * @param context
+     * @return
+     */
+    @Nullable
+    static AlphaStateViewPool from(@Nullable Context context) {
+        while (context != null) {
+            if (context instanceof Provider) {
+                return ((Provider) context).getStateViewPool();
+            }
+            if (!(context instanceof ContextWrapper)) {
+                break;
+            }
+            Context base = ((ContextWrapper) context).getBaseContext();
+            if (base == context) {
+                break;
+            }
+            context = base;
+        }
+        return null;
+    }
+
+    /**
+     * 设置某个布局最多缓存的个数
+     *
+     * @param layoutRes
+     * @param max
+     */
+    public void setMaxRecycledViews(@LayoutRes int layoutRes, int max) {
+        mMaxScrap.put(layoutRes, max);
+        ArrayList<View> scrap = mScrap.get(layoutRes);
+        if (scrap != null) {
+            while (scrap.size() > max) {
+                scrap.remove(scrap.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * 某个布局当前缓存的个数
+     *
+     * @param layoutRes
+     * @return
+     */
+    public int getRecycledViewCount(@LayoutRes int layoutRes) {
+        ArrayList<View> scrap = mScrap.get(layoutRes);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    /**
+     * 从池中取出一个view, 没有则inflate
+     *
+     * @param inflater
+     * @param layoutRes
+     * @param parent
+     * @return
+     */
+    @NonNull
+    View acquire(@NonNull LayoutInflater inflater, @LayoutRes int layoutRes, @NonNull ViewGroup parent) {
+        ArrayList<View> scrap = mScrap.get(layoutRes);
+        if (scrap != null && !scrap.isEmpty()) {
+            return scrap.remove(scrap.size() - 1);
+        }
+        View view = inflater.inflate(layoutRes, parent, false);
+        view.setTag(R.id.alpha_state_view_layout_res, layoutRes);
+        return view;
+    }
+
+    /**
+     * 归还view, view必须已经从父布局移除
+     *
+     * @param view
+     * @return 是否被回收, 非池中创建的view或者超出缓存个数时返回false
+     */
+    boolean release(@NonNull View view) {
+        int layoutRes = getLayoutRes(view);
+        if (layoutRes == -1 || view.getParent() != null) {
+            return false;
+        }
+        ArrayList<View> scrap = mScrap.get(layoutRes);
+        if (scrap == null) {
+            scrap = new ArrayList<>();
+            mScrap.put(layoutRes, scrap);
+        }
+        if (scrap.size() >= mMaxScrap.get(layoutRes, DEFAULT_MAX_SCRAP) || scrap.contains(view)) {
+            return false;
+        }
+        view.setVisibility(View.GONE);
+        view.setAlpha(1.0f);
+        scrap.add(view);
+        return true;
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        mScrap.clear();
+    }
+
+    /**
+     * view对应的布局资源id
+     *
+     * @param view
+     * @return 没有记录时返回-1
+     */
+    static int getLayoutRes(@NonNull View view) {
+        Object tag = view.getTag(R.id.alpha_state_view_layout_res);
+        return tag instanceof Integer ? (Integer) tag : -1;
+    }
+}
@@ -0,0 +1,72 @@
+package com.icourt.loading;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 库内耗时操作的systrace/perfetto区间, 默认关闭
+ * <p>
+ * 开启后在trace中可以看到以"Alpha"开头的区间, 例如AlphaLoading.show, AlphaStateLayout.inflate;
+ * 关闭时每个区间只多一次静态字段读取; API 18以下没有{@link Trace}, 开启也不会记录
+ * <pre>
+ *     if (BuildConfig.DEBUG) {
+ *         AlphaTrace.setEnabled(true);
+ *     }
+ * </pre>
+ * @Company Beijing icourt
+ * @date createTime：2017/12/14
+ */
+public final class AlphaTrace {
+
+    static final String LOADING_INIT = "AlphaLoading.init";
+    static final String LOADING_SHOW = "AlphaLoading.show";
+    static final String LOADING_RESULT = "AlphaLoading.result";
+    static final String LOADING_RESULT_ICON = "AlphaLoading.resultIcon";
+    static final String LOADING_DISMISS = "AlphaLoading.dismiss";
+    static final String STATE_ADD_CHILD = "AlphaStateLayout.addStateChild";
+    static final String STATE_INFLATE = "AlphaStateLayout.inflate";
+    static final String STATE_SET_VIEW = "AlphaStateLayout.setView";
+    static final String STATE_SET_VIEW_FOR_STATE = "AlphaStateLayout.setViewForState";
+
+    private static boolean sEnabled;
+
+    private AlphaTrace() {
+    }
+
+    /**
+     * 开关trace区间, 建议在Application中设置一次
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 开始一个区间, 必须在同一线程用返回值调用{@link #end(boolean)}
+     *
+     * @param section
+     * @return 是否真正开始了区间, 中途切换开关也能保持配对
+     */
+    @SuppressWarnings("NewApi")
+    static boolean begin(String section) {
+        if (!sEnabled) {
+            return false;
+        }
+        Trace.beginSection(section);
+        return true;
+    }
+
+    @SuppressWarnings("NewApi")
+    static void end(boolean begun) {
+        if (begun) {
+            Trace.endSection();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.icourt.loading;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description loading图集中的一帧, 绘制时直接取图集位图中的一块区域
+ * <p>
+ * 所有帧共用{@link LoadingAtlas}解码出的一张位图, 不为每帧生成位图;
+ * intrinsic尺寸按帧的密度换算, 与drawable目录下的帧一致
+ * @Company Beijing icourt
+ * @date createTime：2017/12/16
+ */
+final class AtlasFrameDrawable extends Drawable {
+
+    private final LoadingFrameDecoder.Frames mFrames;
+    private final int mFrame;
+    private final int mIntrinsicWidth;
+    private final int mIntrinsicHeight;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF mBounds = new RectF();
+    private final RectF mDst = new RectF();
+
+    AtlasFrameDrawable(@NonNull Resources res, @NonNull LoadingFrameDecoder.Frames frames, int frame) {
+        mFrames = frames;
+        mFrame = frame;
+        float scale = (float) res.getDisplayMetrics().densityDpi / Math.max(1, frames.density);
+        mIntrinsicWidth = Math.round(frames.width * scale);
+        mIntrinsicHeight = Math.round(frames.height * scale);
+    }
+
+    /**
+     * 图集位图, 用于内存统计
+     *
+     * @return
+     */
+    @NonNull
+    Bitmap getBitmap() {
+        return mFrames.bitmaps[mFrame];
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        mFrames.draw(canvas, mFrame, mBounds, mPaint, mDst);
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mBounds.set(bounds);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mIntrinsicWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mIntrinsicHeight;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,198 @@
+package com.icourt.loading;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 默认loading动画的帧图集
+ * <p>
+ * 构建时packLoadingAtlas把drawable目录下的帧裁剪后打包成raw/alpha_loading_atlas.png,
+ * 帧位置和帧资源名写在raw/alpha_loading_atlas_index.txt; 运行时只按目标尺寸采样解码这一张图,
+ * 每一帧绘制时取图集中的一块区域, 不再单独生成每帧的位图;
+ * animation-list的帧正好是打包的那些帧时才使用图集, 见{@link #matches}; 应用覆盖了alpha_loading时按原来的方式解码
+ * @Company Beijing icourt
+ * @date createTime：2017/12/11
+ */
+final class LoadingAtlas {
+
+    /**
+     * 帧原来放在drawable目录, 按mdpi计算intrinsic尺寸
+     */
+    private static final int FRAME_DENSITY = 160;
+
+    /**
+     * 帧索引: 原始帧尺寸, 每帧在图集中的位置, 在原始帧中的偏移和帧资源名
+     */
+    private static final class Index {
+        int frameWidth;
+        int frameHeight;
+        int[] rects;
+        int[] durations;
+        String[] names;
+    }
+
+    private static Index sIndex;
+
+    private LoadingAtlas() {
+    }
+
+    /**
+     * animation-list是否正好由图集中的帧组成: 帧资源名, 顺序, 时长一致, 第一帧的原始尺寸与索引一致;
+     * 不按animation-list的资源id判断, 应用覆盖alpha_loading或者换成自己的帧时不会误用图集
+     *
+     * @param res
+     * @param frameRes   animation-list每一帧的资源
+     * @param durations  每一帧的时长
+     * @param firstFrameWidth  第一帧位图的原始宽度
+     * @param firstFrameHeight 第一帧位图的原始高度
+     * @return
+     */
+    static boolean matches(@NonNull Resources res, @NonNull int[] frameRes, @NonNull int[] durations,
+                           int firstFrameWidth, int firstFrameHeight) {
+        Index index = index(res);
+        if (index == null || index.names.length != frameRes.length
+                || index.frameWidth != firstFrameWidth || index.frameHeight != firstFrameHeight) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < frameRes.length; i++) {
+                if (index.durations[i] != durations[i]
+                        || !index.names[i].equals(res.getResourceEntryName(frameRes[i]))) {
+                    return false;
+                }
+            }
+        } catch (Resources.NotFoundException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按目标尺寸采样解码图集, 每帧是图集中的一块区域
+     *
+     * @param res
+     * @param width
+     * @param height
+     * @return 图集缺失或者解码失败时返回null
+     */
+    @Nullable
+    static LoadingFrameDecoder.Frames decode(@NonNull Resources res, int width, int height) {
+        Index index = index(res);
+        if (index == null) {
+            return null;
+        }
+        float fit = Math.min(1f, Math.min((float) width / index.frameWidth, (float) height / index.frameHeight));
+        int targetWidth = Math.max(1, Math.round(index.frameWidth * fit));
+        int targetHeight = Math.max(1, Math.round(index.frameHeight * fit));
+        int sampleSize = 1;
+        while (index.frameWidth / (sampleSize * 2) >= targetWidth && index.frameHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+
+        Bitmap atlas = decodeAtlas(res, sampleSize);
+        if (atlas == null) {
+            return null;
+        }
+        int count = index.durations.length;
+        Rect[] srcRects = new Rect[count];
+        RectF[] dstRects = new RectF[count];
+        float scale = (float) targetWidth / index.frameWidth;
+        for (int i = 0; i < count; i++) {
+            int offset = i * 6;
+            int x = index.rects[offset];
+            int y = index.rects[offset + 1];
+            int w = index.rects[offset + 2];
+            int h = index.rects[offset + 3];
+            int left = index.rects[offset + 4];
+            int top = index.rects[offset + 5];
+            Rect src = new Rect(x / sampleSize, y / sampleSize,
+                    (x + w + sampleSize - 1) / sampleSize, (y + h + sampleSize - 1) / sampleSize);
+            // 采样后src向外取整, dst按取整后的src换算回原始帧坐标, 避免帧被拉伸
+            srcRects[i] = src;
+            dstRects[i] = new RectF((src.left * sampleSize - x + left) * scale, (src.top * sampleSize - y + top) * scale,
+                    (src.right * sampleSize - x + left) * scale, (src.bottom * sampleSize - y + top) * scale);
+        }
+        // intrinsic尺寸与drawable目录下的帧一致
+        int density = Math.max(1, Math.round((float) targetWidth * FRAME_DENSITY / index.frameWidth));
+        return new LoadingFrameDecoder.Frames(atlas, srcRects, dstRects, targetWidth, targetHeight, density,
+                index.durations, false);
+    }
+
+    @Nullable
+    private static Bitmap decodeAtlas(Resources res, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inScaled = false;
+        InputStream in = null;
+        try {
+            in = res.openRawResource(R.raw.alpha_loading_atlas);
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } catch (OutOfMemoryError e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    @Nullable
+    private static synchronized Index index(Resources res) {
+        if (sIndex != null) {
+            return sIndex;
+        }
+        InputStream in = null;
+        try {
+            in = res.openRawResource(R.raw.alpha_loading_atlas_index);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            String[] header = reader.readLine().trim().split(" ");
+            Index index = new Index();
+            index.frameWidth = Integer.parseInt(header[0]);
+            index.frameHeight = Integer.parseInt(header[1]);
+            int count = Integer.parseInt(header[2]);
+            index.rects = new int[count * 6];
+            index.durations = new int[count];
+            index.names = new String[count];
+            for (int i = 0; i < count; i++) {
+                String[] values = reader.readLine().trim().split(" ");
+                for (int j = 0; j < 6; j++) {
+                    index.rects[i * 6 + j] = Integer.parseInt(values[j]);
+                }
+                index.durations[i] = Integer.parseInt(values[6]);
+                index.names[i] = values[7];
+            }
+            sIndex = index;
+            return index;
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // 索引格式不对
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static void closeQuietly(@Nullable InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
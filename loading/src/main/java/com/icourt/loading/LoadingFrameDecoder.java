@@ -0,0 +1,476 @@
+package com.icourt.loading;
+
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+import android.util.TypedValue;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 按view尺寸解码animation-list的每一帧
+ * <p>
+ * 系统解码animation-list时每帧按资源原始尺寸 * 屏幕密度解码, 128px的mdpi帧在xxhdpi上是384px;
+ * 这里先采样再缩放到目标尺寸, 相同资源和尺寸的帧在进程内共享;
+ * 主线程通过{@link #decodeAsync}在后台线程解码, 只有命中缓存时才同步返回
+ * @Company Beijing icourt
+ * @date createTime：2017/12/06
+ */
+final class LoadingFrameDecoder {
+
+    private static final int MAX_CACHE_BYTES = 8 * 1024 * 1024;
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "alpha-loading-frames");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    private static final LruCache<String, Frames> CACHE = new LruCache<String, Frames>(
+            (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 16)) {
+        @Override
+        protected int sizeOf(String key, Frames value) {
+            return value.byteCount;
+        }
+    };
+
+    /**
+     * 解析出的animation-list
+     */
+    private static final class Source {
+        final int[] frameRes;
+        final int[] durations;
+        final boolean oneShot;
+
+        Source(int[] frameRes, int[] durations, boolean oneShot) {
+            this.frameRes = frameRes;
+            this.durations = durations;
+            this.oneShot = oneShot;
+        }
+    }
+
+    /**
+     * 解码后的帧, 位图在进程内共享, 不能修改或recycle;
+     * 从图集解码时所有帧共用图集位图, 每帧是图集中的一块区域
+     */
+    static final class Frames {
+        /**
+         * 每一帧的位图, 从图集解码时都是同一张
+         */
+        final Bitmap[] bitmaps;
+        /**
+         * 每帧在位图中的区域, null时使用整张位图
+         */
+        @Nullable
+        final Rect[] srcRects;
+        /**
+         * 每帧在帧内的绘制区域, 与srcRects同时为null
+         */
+        @Nullable
+        final RectF[] dstRects;
+        /**
+         * 帧的尺寸(px)
+         */
+        final int width;
+        final int height;
+        /**
+         * 帧的密度, 用于计算intrinsic尺寸
+         */
+        final int density;
+        final int[] durations;
+        final boolean oneShot;
+        final int byteCount;
+
+        Frames(Bitmap[] bitmaps, int[] durations, boolean oneShot) {
+            this.bitmaps = bitmaps;
+            this.srcRects = null;
+            this.dstRects = null;
+            this.width = bitmaps[0].getWidth();
+            this.height = bitmaps[0].getHeight();
+            this.density = bitmaps[0].getDensity();
+            this.durations = durations;
+            this.oneShot = oneShot;
+            int bytes = 0;
+            for (Bitmap bitmap : bitmaps) {
+                bytes += bitmap.getRowBytes() * bitmap.getHeight();
+            }
+            this.byteCount = bytes;
+        }
+
+        Frames(Bitmap atlas, Rect[] srcRects, RectF[] dstRects, int width, int height, int density,
+               int[] durations, boolean oneShot) {
+            this.bitmaps = new Bitmap[srcRects.length];
+            Arrays.fill(bitmaps, atlas);
+            this.srcRects = srcRects;
+            this.dstRects = dstRects;
+            this.width = width;
+            this.height = height;
+            this.density = density;
+            this.durations = durations;
+            this.oneShot = oneShot;
+            this.byteCount = atlas.getRowBytes() * atlas.getHeight();
+        }
+
+        /**
+         * 把第frame帧绘制到bounds, 不分配对象
+         *
+         * @param canvas
+         * @param frame
+         * @param bounds 帧的绘制区域
+         * @param paint
+         * @param tmp    绘制线程/主线程各自复用的临时区域
+         */
+        void draw(Canvas canvas, int frame, RectF bounds, Paint paint, RectF tmp) {
+            if (srcRects == null || dstRects == null) {
+                canvas.drawBitmap(bitmaps[frame], null, bounds, paint);
+                return;
+            }
+            float scaleX = bounds.width() / width;
+            float scaleY = bounds.height() / height;
+            RectF dst = dstRects[frame];
+            tmp.set(bounds.left + dst.left * scaleX, bounds.top + dst.top * scaleY,
+                    bounds.left + dst.right * scaleX, bounds.top + dst.bottom * scaleY);
+            canvas.drawBitmap(bitmaps[frame], srcRects[frame], tmp, paint);
+        }
+    }
+
+    /**
+     * 异步解码结果, 在主线程回调
+     */
+    interface Callback {
+        /**
+         * @param frames 不是由位图组成的animation-list或者解码失败时为null
+         */
+        void onFramesDecoded(@Nullable AnimationDrawable frames);
+    }
+
+    private LoadingFrameDecoder() {
+    }
+
+    /**
+     * 缓存中的所有帧, 用于内存统计
+     *
+     * @param out
+     */
+    static void collectCachedBitmaps(@NonNull List<Bitmap> out) {
+        for (Frames frames : CACHE.snapshot().values()) {
+            Collections.addAll(out, frames.bitmaps);
+        }
+    }
+
+    /**
+     * 清空缓存, 正在显示的帧由使用者持有, 不受影响
+     */
+    static void evictCache() {
+        CACHE.evictAll();
+    }
+
+    /**
+     * 第一帧按系统方式加载时的尺寸(px), 用于wrap_content时测量
+     *
+     * @param res
+     * @param resId animation-list资源
+     * @param outSize 宽, 高
+     * @return 不是由位图组成的animation-list时返回false
+     */
+    static boolean getIntrinsicSize(@NonNull Resources res, @DrawableRes int resId, @NonNull int[] outSize) {
+        Source source = parse(res, resId);
+        if (source == null) {
+            return false;
+        }
+        TypedValue value = new TypedValue();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeFrame(res, source.frameRes[0], value, options);
+        if (options.outWidth <= 0) {
+            return false;
+        }
+        float scale = densityScale(res, value);
+        outSize[0] = Math.round(options.outWidth * scale);
+        outSize[1] = Math.round(options.outHeight * scale);
+        return true;
+    }
+
+    /**
+     * 按目标尺寸解码animation-list
+     *
+     * @param res
+     * @param resId
+     * @param width  目标宽度(px)
+     * @param height 目标高度(px)
+     * @return 不是由位图组成的animation-list时返回null
+     */
+    @Nullable
+    static AnimationDrawable decode(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        Frames frames = obtainFrames(res, resId, width, height);
+        return frames != null ? toDrawable(res, frames) : null;
+    }
+
+    /**
+     * 缓存中已有的帧, 不解码
+     *
+     * @param res
+     * @param resId
+     * @param width
+     * @param height
+     * @return 没有命中缓存时返回null
+     */
+    @Nullable
+    static AnimationDrawable peek(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        Frames frames = CACHE.get(key(resId, width, height));
+        return frames != null ? toDrawable(res, frames) : null;
+    }
+
+    /**
+     * 在后台线程按目标尺寸解码, 完成后在主线程回调; 是否仍需要结果由调用方判断
+     *
+     * @param res
+     * @param resId
+     * @param width
+     * @param height
+     * @param callback
+     */
+    static void decodeAsync(@NonNull final Resources res, @DrawableRes final int resId, final int width,
+                            final int height, @NonNull final Callback callback) {
+        DECODER.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Frames frames = obtainFrames(res, resId, width, height);
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFramesDecoded(frames != null ? toDrawable(res, frames) : null);
+                    }
+                });
+            }
+        });
+    }
+
+    static String key(@DrawableRes int resId, int width, int height) {
+        return resId + ":" + width + "x" + height;
+    }
+
+    private static AnimationDrawable toDrawable(Resources res, Frames frames) {
+        AnimationDrawable drawable = new AnimationDrawable();
+        for (int i = 0; i < frames.bitmaps.length; i++) {
+            Drawable frame = frames.srcRects != null
+                    ? new AtlasFrameDrawable(res, frames, i) : new BitmapDrawable(res, frames.bitmaps[i]);
+            drawable.addFrame(frame, frames.durations[i]);
+        }
+        drawable.setOneShot(frames.oneShot);
+        return drawable;
+    }
+
+    /**
+     * 按目标尺寸取得解码后的帧, 可以在任意线程调用
+     *
+     * @param res
+     * @param resId
+     * @param width
+     * @param height
+     * @return 不是由位图组成的animation-list时返回null
+     */
+    @Nullable
+    static Frames obtainFrames(@NonNull Resources res, @DrawableRes int resId, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        String key = key(resId, width, height);
+        Frames frames = CACHE.get(key);
+        if (frames == null) {
+            frames = decodeFrames(res, resId, width, height);
+            if (frames == null) {
+                return null;
+            }
+            CACHE.put(key, frames);
+        }
+        return frames;
+    }
+
+    @Nullable
+    private static Frames decodeFrames(Resources res, @DrawableRes int resId, int width, int height) {
+        Source source = parse(res, resId);
+        if (source == null) {
+            return null;
+        }
+        int count = source.frameRes.length;
+        Bitmap[] bitmaps = new Bitmap[count];
+        TypedValue value = new TypedValue();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        for (int i = 0; i < count; i++) {
+            options.inJustDecodeBounds = true;
+            options.inSampleSize = 1;
+            options.inScaled = false;
+            options.inDensity = 0;
+            options.inTargetDensity = 0;
+            decodeFrame(res, source.frameRes[i], value, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            int rawWidth = options.outWidth;
+            int rawHeight = options.outHeight;
+            if (i == 0 && LoadingAtlas.matches(res, source.frameRes, source.durations, rawWidth, rawHeight)) {
+                // 默认动画的帧同时打包在图集里, 只解码一张图; 图集缺失时逐帧解码
+                Frames frames = LoadingAtlas.decode(res, width, height);
+                if (frames != null) {
+                    return frames;
+                }
+            }
+            // 保持宽高比, 缩放到能放进目标尺寸
+            float fit = Math.min(1f, Math.min((float) width / rawWidth, (float) height / rawHeight));
+            int targetWidth = Math.max(1, Math.round(rawWidth * fit));
+            int targetHeight = Math.max(1, Math.round(rawHeight * fit));
+            int sampleSize = 1;
+            while (rawWidth / (sampleSize * 2) >= targetWidth && rawHeight / (sampleSize * 2) >= targetHeight) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            int sampledWidth = rawWidth / sampleSize;
+            if (sampledWidth > targetWidth) {
+                // 采样后剩余部分由解码器缩放
+                options.inScaled = true;
+                options.inDensity = sampledWidth;
+                options.inTargetDensity = targetWidth;
+            }
+            Bitmap bitmap = decodeFrame(res, source.frameRes[i], value, options);
+            if (bitmap == null) {
+                return null;
+            }
+            // intrinsic尺寸与系统加载时一致, wrap_content的测量结果不变
+            float intrinsicWidth = rawWidth * densityScale(res, value);
+            bitmap.setDensity(Math.max(1, Math.round(
+                    bitmap.getWidth() * res.getDisplayMetrics().densityDpi / intrinsicWidth)));
+            bitmaps[i] = bitmap;
+        }
+        return new Frames(bitmaps, source.durations, source.oneShot);
+    }
+
+    /**
+     * 解码一帧, inJustDecodeBounds时只读取尺寸
+     *
+     * @return 解码出的位图, 只读尺寸或者失败时为null, 失败时options.outWidth为-1
+     */
+    @Nullable
+    private static Bitmap decodeFrame(Resources res, @DrawableRes int frameRes, TypedValue value,
+                                      BitmapFactory.Options options) {
+        options.outWidth = -1;
+        InputStream in = null;
+        try {
+            res.getValue(frameRes, value, true);
+            if (value.string == null || value.string.toString().endsWith(".xml")) {
+                return null;
+            }
+            in = res.openRawResource(frameRes);
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } catch (OutOfMemoryError e) {
+            options.outWidth = -1;
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 资源所在密度目录到屏幕密度的缩放比例
+     */
+    private static float densityScale(Resources res, TypedValue value) {
+        int density = value.density;
+        if (density == TypedValue.DENSITY_NONE) {
+            return 1f;
+        }
+        if (density == TypedValue.DENSITY_DEFAULT) {
+            density = 160;
+        }
+        return (float) res.getDisplayMetrics().densityDpi / density;
+    }
+
+    @Nullable
+    private static Source parse(Resources res, @DrawableRes int resId) {
+        XmlResourceParser parser = null;
+        try {
+            parser = res.getXml(resId);
+            int type;
+            while ((type = parser.next()) != XmlPullParser.START_TAG && type != XmlPullParser.END_DOCUMENT) {
+                // 跳到根节点
+            }
+            if (type != XmlPullParser.START_TAG || !"animation-list".equals(parser.getName())) {
+                return null;
+            }
+            boolean oneShot = parser.getAttributeBooleanValue(ANDROID_NS, "oneshot", false);
+            ArrayList<int[]> items = new ArrayList<>();
+            int depth = parser.getDepth();
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT
+                    && (type != XmlPullParser.END_TAG || parser.getDepth() > depth)) {
+                if (type == XmlPullParser.START_TAG && "item".equals(parser.getName())) {
+                    int drawable = parser.getAttributeResourceValue(ANDROID_NS, "drawable", 0);
+                    int duration = parser.getAttributeIntValue(ANDROID_NS, "duration", -1);
+                    if (drawable == 0 || duration < 0) {
+                        return null;
+                    }
+                    items.add(new int[]{drawable, duration});
+                }
+            }
+            if (items.isEmpty()) {
+                return null;
+            }
+            int[] frameRes = new int[items.size()];
+            int[] durations = new int[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                frameRes[i] = items.get(i)[0];
+                durations[i] = items.get(i)[1];
+            }
+            return new Source(frameRes, durations, oneShot);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } catch (XmlPullParserException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (parser != null) {
+                parser.close();
+            }
+        }
+    }
+}
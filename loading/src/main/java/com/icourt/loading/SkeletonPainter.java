@@ -0,0 +1,215 @@
+package com.icourt.loading;
+
+import android.animation.ValueAnimator;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 骨架屏绘制, 按内容布局子view的位置绘制占位块, 一个渐变shader平移实现闪光效果
+ * <p>
+ * 不创建任何view, 由{@link AlphaStateLayout#dispatchDraw(Canvas)}调用;
+ * 闪光动画只在host显示在屏幕上时播放, 与AlphaLoadingView使用同样的判断
+ * @Company Beijing icourt
+ * @date createTime：2017/11/23
+ */
+final class SkeletonPainter implements ValueAnimator.AnimatorUpdateListener,
+        ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
+
+    private final View mHost;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Matrix mShaderMatrix = new Matrix();
+    private final RectF mRect = new RectF();
+    private final Rect mVisibleRect = new Rect();
+    private final ValueAnimator mAnimator;
+    private final float mRadius;
+    private final float mLineHeight;
+    @ColorInt
+    private final int mBaseColor;
+    @ColorInt
+    private final int mHighlightColor;
+
+    /**
+     * 占位块, 每4个float为一个矩形 left, top, right, bottom
+     */
+    private float[] mBlocks = new float[64];
+    private int mBlockCount;
+    private int mShaderWidth;
+    /**
+     * 是否处于骨架屏状态, 动画是否播放还取决于是否在屏幕上
+     */
+    private boolean mActive;
+    private ViewTreeObserver mObserver;
+
+    SkeletonPainter(@NonNull View host, @ColorInt int baseColor, @ColorInt int highlightColor,
+                    float radius, long duration) {
+        mHost = host;
+        mBaseColor = baseColor;
+        mHighlightColor = highlightColor;
+        mRadius = radius;
+        mLineHeight = 16 * host.getResources().getDisplayMetrics().density;
+        mPaint.setColor(baseColor);
+        mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mAnimator.setDuration(duration);
+        mAnimator.setRepeatCount(ValueAnimator.INFINITE);
+        mAnimator.setInterpolator(new LinearInterpolator());
+        mAnimator.addUpdateListener(this);
+    }
+
+    void start() {
+        if (!mActive) {
+            mActive = true;
+            mObserver = mHost.getViewTreeObserver();
+            mObserver.addOnScrollChangedListener(this);
+            mObserver.addOnGlobalLayoutListener(this);
+        }
+        update();
+    }
+
+    void stop() {
+        if (mActive) {
+            mActive = false;
+            removeListeners();
+        }
+        mAnimator.cancel();
+    }
+
+    /**
+     * 重新判断是否在屏幕上, host可见性/窗口焦点变化时调用
+     */
+    void update() {
+        if (mActive && ViewportVisibility.isOnScreen(mHost, mVisibleRect)) {
+            if (!mAnimator.isStarted()) {
+                mAnimator.start();
+            }
+        } else if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+    }
+
+    @Override
+    public void onScrollChanged() {
+        update();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        update();
+    }
+
+    private void removeListeners() {
+        // 添加时未attach的observer在attach后被合并, 从当前的observer移除
+        ViewTreeObserver observer = mObserver.isAlive() ? mObserver : mHost.getViewTreeObserver();
+        mObserver = null;
+        observer.removeOnScrollChangedListener(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            observer.removeOnGlobalLayoutListener(this);
+        } else {
+            observer.removeGlobalOnLayoutListener(this);
+        }
+    }
+
+    /**
+     * 收集内容布局中可见叶子view的位置作为占位块, 布局变化时调用
+     *
+     * @param content 内容布局, 坐标相对于host
+     */
+    void collect(@NonNull View content) {
+        mBlockCount = 0;
+        collect(content, content.getLeft(), content.getTop());
+        if (mBlockCount == 0) {
+            fillLines(content);
+        }
+        int width = mHost.getWidth();
+        if (width > 0 && width != mShaderWidth) {
+            mShaderWidth = width;
+            mPaint.setShader(new LinearGradient(0, 0, width, 0,
+                    new int[]{mBaseColor, mHighlightColor, mBaseColor},
+                    new float[]{0.3f, 0.5f, 0.7f}, Shader.TileMode.CLAMP));
+        }
+    }
+
+    private void collect(View view, int left, int top) {
+        if (view.getVisibility() != View.VISIBLE || view.getWidth() == 0 || view.getHeight() == 0) {
+            return;
+        }
+        if (view instanceof ViewGroup && ((ViewGroup) view).getChildCount() > 0) {
+            ViewGroup group = (ViewGroup) view;
+            int offsetLeft = left - group.getScrollX();
+            int offsetTop = top - group.getScrollY();
+            for (int i = 0; i < group.getChildCount(); i++) {
+                View child = group.getChildAt(i);
+                collect(child, offsetLeft + child.getLeft(), offsetTop + child.getTop());
+            }
+            return;
+        }
+        addBlock(left + view.getPaddingLeft(), top + view.getPaddingTop(),
+                left + view.getWidth() - view.getPaddingRight(), top + view.getHeight() - view.getPaddingBottom());
+    }
+
+    /**
+     * 内容布局没有子view时(例如列表还没有数据), 按行填充占位块
+     */
+    private void fillLines(View content) {
+        float padding = mLineHeight;
+        float left = content.getLeft() + padding;
+        float right = content.getRight() - padding;
+        float bottom = content.getBottom() - padding;
+        int line = 0;
+        for (float top = content.getTop() + padding; top + mLineHeight <= bottom; top += mLineHeight * 2) {
+            float lineRight = line % 3 == 2 ? left + (right - left) * 0.6f : right;
+            addBlock(left, top, lineRight, top + mLineHeight);
+            line++;
+        }
+    }
+
+    private void addBlock(float left, float top, float right, float bottom) {
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        int index = mBlockCount * 4;
+        if (index + 4 > mBlocks.length) {
+            float[] blocks = new float[mBlocks.length * 2];
+            System.arraycopy(mBlocks, 0, blocks, 0, mBlocks.length);
+            mBlocks = blocks;
+        }
+        mBlocks[index] = left;
+        mBlocks[index + 1] = top;
+        mBlocks[index + 2] = right;
+        mBlocks[index + 3] = bottom;
+        mBlockCount++;
+    }
+
+    void draw(@NonNull Canvas canvas) {
+        for (int i = 0; i < mBlockCount; i++) {
+            int index = i * 4;
+            mRect.set(mBlocks[index], mBlocks[index + 1], mBlocks[index + 2], mBlocks[index + 3]);
+            canvas.drawRoundRect(mRect, mRadius, mRadius, mPaint);
+        }
+    }
+
+    @Override
+    public void onAnimationUpdate(ValueAnimator animation) {
+        // 渐变从左侧外移动到右侧外
+        float fraction = animation.getAnimatedFraction();
+        mShaderMatrix.setTranslate((fraction * 2f - 1f) * mShaderWidth, 0);
+        Shader shader = mPaint.getShader();
+        if (shader != null) {
+            shader.setLocalMatrix(mShaderMatrix);
+        }
+        mHost.invalidate();
+    }
+}
@@ -0,0 +1,188 @@
+package com.icourt.loading;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 状态布局的淡入淡出过渡
+ * <p>
+ * 整个生命周期只持有一个ValueAnimator, 切换时不再创建新的动画对象;
+ * 动画期间两个view使用硬件层绘制, 新的切换会打断当前过渡并从view当前的alpha继续
+ * @Company Beijing icourt
+ * @date createTime：2017/11/22
+ */
+final class StateCrossFader extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener {
+
+    static final long DEFAULT_DURATION = 250L;
+
+    private final ValueAnimator mAnimator;
+    @Nullable
+    private final Callback mCallback;
+    private final long mDuration;
+
+    @Nullable
+    private View mOutView;
+    @Nullable
+    private View mInView;
+    private float mOutStartAlpha;
+    private float mInStartAlpha;
+    private boolean mOutLayerSet;
+    private boolean mInLayerSet;
+    private boolean mInterrupting;
+
+    /**
+     * 过渡结束时view回到终态的回调
+     */
+    interface Callback {
+        /**
+         * 即将修改view的可见性
+         */
+        void onSettleStart();
+
+        /**
+         * view已经到终态
+         */
+        void onSettleEnd();
+    }
+
+    /**
+     * @param duration 完整过渡的时长
+     * @param callback 过渡正常结束时回调
+     */
+    StateCrossFader(long duration, @Nullable Callback callback) {
+        mDuration = duration;
+        mCallback = callback;
+        mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        mAnimator.addUpdateListener(this);
+        mAnimator.addListener(this);
+    }
+
+    boolean isRunning() {
+        return mAnimator.isRunning();
+    }
+
+    /**
+     * 从outgoing过渡到incoming, 正在进行的过渡会被打断
+     *
+     * @param outgoing 离开的布局, 可以为null
+     * @param incoming 进入的布局
+     */
+    void crossFade(@Nullable View outgoing, @NonNull View incoming) {
+        View prevOut = mOutView;
+        View prevIn = mInView;
+        boolean inAnimating = incoming == prevOut || incoming == prevIn;
+        interrupt();
+
+        // 被打断的过渡中不再参与的view直接到终态
+        if (prevOut != null && prevOut != outgoing && prevOut != incoming) {
+            settleOut(prevOut, mOutLayerSet);
+        }
+        if (prevIn != null && prevIn != outgoing && prevIn != incoming) {
+            settleIn(prevIn, mInLayerSet);
+        }
+        boolean outLayerSet = (prevOut == outgoing && mOutLayerSet) || (prevIn == outgoing && mInLayerSet);
+        boolean inLayerSet = (prevOut == incoming && mOutLayerSet) || (prevIn == incoming && mInLayerSet);
+        mOutView = null;
+        mInView = null;
+
+        if (outgoing == null && !inAnimating) {
+            settleIn(incoming, inLayerSet);
+            return;
+        }
+
+        mOutView = outgoing;
+        mInView = incoming;
+        mOutStartAlpha = outgoing != null && outgoing.getVisibility() == View.VISIBLE ? outgoing.getAlpha() : 0f;
+        mInStartAlpha = incoming.getVisibility() == View.VISIBLE ? incoming.getAlpha() : 0f;
+        mOutLayerSet = outLayerSet || (outgoing != null && enableLayer(outgoing));
+        mInLayerSet = inLayerSet || enableLayer(incoming);
+
+        incoming.setAlpha(mInStartAlpha);
+        incoming.setVisibility(View.VISIBLE);
+
+        float remaining = Math.max(mOutStartAlpha, 1f - mInStartAlpha);
+        mAnimator.setDuration((long) (mDuration * remaining));
+        mAnimator.start();
+    }
+
+    /**
+     * 直接结束当前过渡, 所有view到终态
+     */
+    void end() {
+        if (mAnimator.isRunning()) {
+            mAnimator.end();
+        }
+    }
+
+    private void interrupt() {
+        if (mAnimator.isRunning()) {
+            mInterrupting = true;
+            mAnimator.cancel();
+            mInterrupting = false;
+        }
+    }
+
+    @Override
+    public void onAnimationUpdate(ValueAnimator animation) {
+        float fraction = animation.getAnimatedFraction();
+        if (mOutView != null) {
+            mOutView.setAlpha(mOutStartAlpha * (1f - fraction));
+        }
+        if (mInView != null) {
+            mInView.setAlpha(mInStartAlpha + (1f - mInStartAlpha) * fraction);
+        }
+    }
+
+    @Override
+    public void onAnimationEnd(Animator animation) {
+        if (mInterrupting) {
+            return;
+        }
+        if (mCallback != null) {
+            mCallback.onSettleStart();
+        }
+        if (mOutView != null) {
+            settleOut(mOutView, mOutLayerSet);
+        }
+        if (mInView != null) {
+            settleIn(mInView, mInLayerSet);
+        }
+        mOutView = null;
+        mInView = null;
+        mOutLayerSet = false;
+        mInLayerSet = false;
+        if (mCallback != null) {
+            mCallback.onSettleEnd();
+        }
+    }
+
+    private static boolean enableLayer(View view) {
+        if (view.getLayerType() == View.LAYER_TYPE_NONE) {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            return true;
+        }
+        return false;
+    }
+
+    private static void settleOut(View view, boolean layerSet) {
+        view.setVisibility(View.GONE);
+        view.setAlpha(1f);
+        if (layerSet) {
+            view.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+
+    private static void settleIn(View view, boolean layerSet) {
+        view.setAlpha(1f);
+        view.setVisibility(View.VISIBLE);
+        if (layerSet) {
+            view.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.icourt.loading;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description empty/error插图的异步解码
+ * <p>
+ * 在后台线程按ImageView的尺寸采样解码, 解码结果放在进程内共享的LruCache中,
+ * 之后的empty/error页面直接命中缓存, 主线程不再解码大图; xml/vector等非位图资源仍同步设置
+ * @Company Beijing icourt
+ * @date createTime：2017/12/02
+ */
+final class StateImageLoader {
+
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "alpha-state-image");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    private static final LruCache<String, Bitmap> CACHE = new LruCache<String, Bitmap>(
+            (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 32)) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+
+    private StateImageLoader() {
+    }
+
+    /**
+     * 加载图片到imageView, 同一个imageView后发起的请求会覆盖之前的请求
+     *
+     * @param imageView
+     * @param resId
+     */
+    static void load(@NonNull final ImageView imageView, @DrawableRes final int resId) {
+        Resources resources = imageView.getResources();
+        TypedValue value = new TypedValue();
+        try {
+            resources.getValue(resId, value, true);
+        } catch (Resources.NotFoundException e) {
+            imageView.setTag(R.id.alpha_state_image_key, null);
+            imageView.setImageResource(resId);
+            return;
+        }
+        if (value.string == null || value.string.toString().endsWith(".xml")) {
+            imageView.setTag(R.id.alpha_state_image_key, null);
+            imageView.setImageResource(resId);
+            return;
+        }
+
+        int reqWidth = requestSize(imageView.getWidth(), imageView.getLayoutParams(), true);
+        int reqHeight = requestSize(imageView.getHeight(), imageView.getLayoutParams(), false);
+        final String key = resId + ":" + reqWidth + "x" + reqHeight;
+        imageView.setTag(R.id.alpha_state_image_key, key);
+        Bitmap cached = CACHE.get(key);
+        if (cached != null) {
+            imageView.setImageDrawable(new BitmapDrawable(resources, cached));
+            return;
+        }
+        // 解码完成前先清掉旧图, 避免复用时短暂显示其他实例的图片
+        imageView.setImageDrawable(null);
+
+        final Resources res = resources;
+        final int density = value.density;
+        final int width = reqWidth;
+        final int height = reqHeight;
+        DECODER.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decode(res, resId, density, width, height);
+                if (bitmap == null) {
+                    return;
+                }
+                CACHE.put(key, bitmap);
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (key.equals(imageView.getTag(R.id.alpha_state_image_key))) {
+                            imageView.setImageDrawable(new BitmapDrawable(res, bitmap));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 缓存中的所有图片, 用于内存统计
+     *
+     * @param out
+     */
+    static void collectCachedBitmaps(@NonNull List<Bitmap> out) {
+        out.addAll(CACHE.snapshot().values());
+    }
+
+    static void evictCache() {
+        CACHE.evictAll();
+    }
+
+    /**
+     * 取消imageView上还没有完成的加载
+     *
+     * @param imageView
+     */
+    static void cancel(@NonNull ImageView imageView) {
+        imageView.setTag(R.id.alpha_state_image_key, null);
+    }
+
+    /**
+     * 目标尺寸: 已经测量过用测量值, 否则用LayoutParams中的固定尺寸;
+     * 都没有时(未测量的wrap_content)返回0, 解码时按图片的intrinsic尺寸采样
+     */
+    private static int requestSize(int measured, @Nullable ViewGroup.LayoutParams lp, boolean horizontal) {
+        if (measured > 0) {
+            return measured;
+        }
+        if (lp != null) {
+            int size = horizontal ? lp.width : lp.height;
+            if (size > 0) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    @Nullable
+    private static Bitmap decode(Resources res, @DrawableRes int resId, int resDensity, int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeStream(res, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int rawWidth = options.outWidth;
+        int bitmapDensity = resDensity == TypedValue.DENSITY_DEFAULT ? 160 : resDensity;
+        boolean scaled = bitmapDensity > 0 && resDensity != TypedValue.DENSITY_NONE;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            // wrap_content按setImageResource时显示的尺寸采样, 不会比原图放大
+            int targetDensity = res.getDisplayMetrics().densityDpi;
+            if (reqWidth <= 0) {
+                reqWidth = scaled ? rawWidth * targetDensity / bitmapDensity : rawWidth;
+            }
+            if (reqHeight <= 0) {
+                reqHeight = scaled ? options.outHeight * targetDensity / bitmapDensity : options.outHeight;
+            }
+        }
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= reqWidth && options.outHeight / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = false;
+        Bitmap bitmap = decodeStream(res, resId, options);
+        if (bitmap != null && scaled) {
+            // 保持与setImageResource相同的intrinsic尺寸, wrap_content时显示大小不变
+            bitmap.setDensity(Math.max(1, bitmapDensity * bitmap.getWidth() / rawWidth));
+        }
+        return bitmap;
+    }
+
+    @Nullable
+    private static Bitmap decodeStream(Resources res, @DrawableRes int resId, BitmapFactory.Options options) {
+        InputStream in = null;
+        try {
+            in = res.openRawResource(resId);
+            return BitmapFactory.decodeStream(in, null, options);
+        } catch (Resources.NotFoundException e) {
+            return null;
+        } catch (OutOfMemoryError e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.icourt.loading;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 状态布局的子view缓存, 记录布局初始的文字/图片, 回收复用时还原;
+ * 通过setEmptyImage/setErrorImage设置的插图由{@link StateImageLoader}异步解码;
+ * 库自带布局的插图不写在xml中, ImageView用android:tag标记({@link #TAG_DEFAULT_EMPTY_IMAGE},
+ * {@link #TAG_DEFAULT_ERROR_IMAGE}), 同样异步解码; 自定义布局没有标记时不受影响
+ * @Company Beijing icourt
+ * @date createTime：2017/11/20
+ */
+final class StateViewHolder {
+
+    static final String TAG_DEFAULT_EMPTY_IMAGE = "alpha_default_empty_image";
+    static final String TAG_DEFAULT_ERROR_IMAGE = "alpha_default_error_image";
+
+    @Nullable
+    final TextView emptyTextView;
+    @Nullable
+    final ImageView emptyImageView;
+    @Nullable
+    final TextView errorTextView;
+    @Nullable
+    final ImageView errorImageView;
+    @Nullable
+    final TextView retryView;
+
+    private final CharSequence mDefaultEmptyText;
+    private final Drawable mDefaultEmptyImage;
+    private final CharSequence mDefaultErrorText;
+    private final Drawable mDefaultErrorImage;
+    /**
+     * 库自带布局的默认插图, 0表示使用布局中的图片
+     */
+    @DrawableRes
+    private final int mDefaultEmptyImageRes;
+    @DrawableRes
+    private final int mDefaultErrorImageRes;
+
+    private StateViewHolder(View itemView) {
+        emptyTextView = itemView.findViewById(R.id.alpha_empty_view_tv);
+        emptyImageView = itemView.findViewById(R.id.alpha_empty_view_iv);
+        errorTextView = itemView.findViewById(R.id.alpha_error_view_tv);
+        errorImageView = itemView.findViewById(R.id.alpha_error_view_iv);
+        retryView = itemView.findViewById(R.id.alpha_error_view_retry_tv);
+
+        mDefaultEmptyText = emptyTextView != null ? emptyTextView.getText() : null;
+        mDefaultEmptyImage = emptyImageView != null ? emptyImageView.getDrawable() : null;
+        mDefaultErrorText = errorTextView != null ? errorTextView.getText() : null;
+        mDefaultErrorImage = errorImageView != null ? errorImageView.getDrawable() : null;
+
+        mDefaultEmptyImageRes = isMarked(emptyImageView, TAG_DEFAULT_EMPTY_IMAGE) ? R.mipmap.alpha_default_empty_data : 0;
+        mDefaultErrorImageRes = isMarked(errorImageView, TAG_DEFAULT_ERROR_IMAGE) ? R.mipmap.alpha_default_load_error : 0;
+        if (mDefaultEmptyImageRes != 0) {
+            StateImageLoader.load(emptyImageView, mDefaultEmptyImageRes);
+        }
+        if (mDefaultErrorImageRes != 0) {
+            StateImageLoader.load(errorImageView, mDefaultErrorImageRes);
+        }
+    }
+
+    private static boolean isMarked(@Nullable ImageView imageView, String tag) {
+        return imageView != null && tag.equals(imageView.getTag());
+    }
+
+    /**
+     * 获取view对应的holder, 没有则创建并记录初始值
+     *
+     * @param itemView
+     * @return
+     */
+    @NonNull
+    static StateViewHolder of(@NonNull View itemView) {
+        Object tag = itemView.getTag(R.id.alpha_state_view_holder);
+        if (tag instanceof StateViewHolder) {
+            return (StateViewHolder) tag;
+        }
+        StateViewHolder holder = new StateViewHolder(itemView);
+        itemView.setTag(R.id.alpha_state_view_holder, holder);
+        return holder;
+    }
+
+    void setEmptyText(CharSequence text) {
+        if (emptyTextView != null) {
+            emptyTextView.setText(text);
+        }
+    }
+
+    void setEmptyImage(@DrawableRes int id) {
+        if (emptyImageView != null) {
+            StateImageLoader.load(emptyImageView, id);
+        }
+    }
+
+    void setErrorText(CharSequence text) {
+        if (errorTextView != null) {
+            errorTextView.setText(text);
+        }
+    }
+
+    void setErrorImage(@DrawableRes int id) {
+        if (errorImageView != null) {
+            StateImageLoader.load(errorImageView, id);
+        }
+    }
+
+    void setRetryListener(@Nullable View.OnClickListener l) {
+        if (retryView != null) {
+            retryView.setOnClickListener(l);
+        }
+    }
+
+    /**
+     * 还原为布局初始的状态, 避免复用时带上其他实例设置的文字/图片/监听
+     */
+    void reset() {
+        if (emptyTextView != null) {
+            emptyTextView.setText(mDefaultEmptyText);
+        }
+        if (mDefaultEmptyImageRes != 0) {
+            // 命中缓存时同步设置, 同时替换还没有完成的加载
+            StateImageLoader.load(emptyImageView, mDefaultEmptyImageRes);
+        } else if (emptyImageView != null) {
+            // 还没有完成的异步加载不能再覆盖还原的图片
+            StateImageLoader.cancel(emptyImageView);
+            emptyImageView.setImageDrawable(mDefaultEmptyImage);
+        }
+        if (errorTextView != null) {
+            errorTextView.setText(mDefaultErrorText);
+        }
+        if (mDefaultErrorImageRes != 0) {
+            StateImageLoader.load(errorImageView, mDefaultErrorImageRes);
+        } else if (errorImageView != null) {
+            StateImageLoader.cancel(errorImageView);
+            errorImageView.setImageDrawable(mDefaultErrorImage);
+        }
+        if (retryView != null) {
+            retryView.setOnClickListener(null);
+        }
+    }
+}
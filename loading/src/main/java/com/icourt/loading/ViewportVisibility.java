@@ -0,0 +1,105 @@
+package com.icourt.loading;
+
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
+
+/**
+ * @author youxuan  E-mail:xuanyouwu@163.com
+ * @version 2.2.1
+ * @Description 判断view是否真正显示在屏幕上, loading动画和骨架屏闪光只在屏幕上时播放
+ * <p>
+ * 已attach, 自身及父布局可见, 窗口可见且有焦点, 在窗口的可见区域内;
+ * 调用方在滚动/布局/可见性变化时重新判断, 不要每帧调用;
+ * 放在父布局overlay中的view(见{@link AlphaStateAttacher#MODE_OVERLAY})没有父布局链, 以overlay所属的view为准
+ * @Company Beijing icourt
+ * @date createTime：2017/12/15
+ */
+final class ViewportVisibility {
+
+    private ViewportVisibility() {
+    }
+
+    /**
+     * @param view
+     * @param outRect 复用的矩形, 保存view在窗口中的可见区域
+     * @return
+     */
+    static boolean isOnScreen(@NonNull View view, @NonNull Rect outRect) {
+        View host = getOverlayHost(view);
+        View anchor = host != null ? host : view;
+        return view.getWindowToken() != null
+                && isShown(view)
+                && view.getWindowVisibility() == View.VISIBLE
+                && (view.hasWindowFocus() || !isWindowFocusable(anchor))
+                && anchor.getGlobalVisibleRect(outRect);
+    }
+
+    /**
+     * 与{@link View#isShown()}一致, 遇到overlay中的view时继续检查overlay所属的view
+     *
+     * @param view
+     * @return
+     */
+    static boolean isShown(@NonNull View view) {
+        View current = view;
+        while (true) {
+            if (current.getVisibility() != View.VISIBLE) {
+                return false;
+            }
+            Object host = current.getTag(R.id.alpha_overlay_host);
+            if (host instanceof View) {
+                current = (View) host;
+                continue;
+            }
+            ViewParent parent = current.getParent();
+            if (parent == null) {
+                return false;
+            }
+            if (!(parent instanceof View)) {
+                // ViewRootImpl
+                return true;
+            }
+            current = (View) parent;
+        }
+    }
+
+    /**
+     * 标记view被添加到host的overlay中
+     *
+     * @param view
+     * @param host
+     */
+    static void setOverlayHost(@NonNull View view, @Nullable View host) {
+        view.setTag(R.id.alpha_overlay_host, host);
+    }
+
+    @Nullable
+    private static View getOverlayHost(View view) {
+        View current = view;
+        while (true) {
+            Object host = current.getTag(R.id.alpha_overlay_host);
+            if (host instanceof View) {
+                return (View) host;
+            }
+            ViewParent parent = current.getParent();
+            if (!(parent instanceof View)) {
+                return null;
+            }
+            current = (View) parent;
+        }
+    }
+
+    /**
+     * 不可获取焦点的窗口(例如FLAG_NOT_FOCUSABLE的悬浮窗)永远没有焦点, 不以焦点判断
+     */
+    private static boolean isWindowFocusable(View view) {
+        ViewGroup.LayoutParams lp = view.getRootView().getLayoutParams();
+        return !(lp instanceof WindowManager.LayoutParams)
+                || (((WindowManager.LayoutParams) lp).flags & WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE) == 0;
+    }
+}